@@ -1,5 +1,14 @@
 package aed.almacen;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import es.upm.aedlib.Pair;
 import es.upm.aedlib.indexedlist.IndexedList;
 import es.upm.aedlib.indexedlist.ArrayIndexedList;
 
@@ -12,14 +21,63 @@ public class Almacen implements ClienteAPI, AlmacenAPI, ProductorAPI {
 	private ArrayIndexedList<Compra> compras;
 	// Productos ordenados ascendamente usando el productoId de un Product.
 	private ArrayIndexedList<Producto> productos;
+	// Indice secundario: los mismos productos ordenados por cantidadDisponible
+	// (y por productoId en caso de empate). Solo se mantiene correcto si la
+	// cantidad se cambia a traves de actualizarCantidad; por eso
+	// Producto.setCantidadDisponible no es publico.
+	private TreeSet<Producto> productosPorCantidad;
+	// Umbral de stock bajo y los listeners avisados cuando se cruza
+	private int umbralStockBajo;
+	private List<StockBajoListener> listenersStockBajo;
+	// Productos y clientes con mas unidades compradas
+	private RankingVentas rankingProductos;
+	private RankingVentas rankingClientes;
+	// Pedidos pendientes por productoId, en orden de llegada
+	private HashMap<String, ArrayDeque<PedidoPendiente>> pedidosPendientes;
+	// Si es true, los pedidos que no se pueden servir se quedan pendientes
+	private boolean modoReserva;
+	// Flujo de cambios (null si no esta activado)
+	private FlujoCambios flujoCambios;
+
+	// Tamaño del top por defecto
+	private static final int TOP_K_POR_DEFECTO = 10;
+
+	// Orden del indice secundario: cantidad disponible y despues productoId
+	private static final Comparator<Producto> POR_CANTIDAD = new Comparator<Producto>() {
+		@Override
+		public int compare(Producto a, Producto b) {
+			int comparacion = Integer.compare(a.getCantidadDisponible(), b.getCantidadDisponible());
+			return comparacion != 0 ? comparacion : a.getProductoId().compareTo(b.getProductoId());
+		}
+	};
 
 	// No es necesario cambiar el constructor
 	/**
 	 * Crea un almacen.
 	 */
 	public Almacen() {
+		this(TOP_K_POR_DEFECTO, 0);
+	}
+
+	/**
+	 * Crea un almacen cuyos rankings de productos y clientes guardan los topK
+	 * mejores.
+	 *
+	 * @param topK    El numero de productos y clientes de los rankings
+	 * @param ventana El numero de compras recientes que cuentan para los
+	 *                rankings, o 0 para contar todas las compras
+	 */
+	public Almacen(int topK, int ventana) {
+		this.rankingProductos = new RankingVentas(topK, ventana);
+		this.rankingClientes = new RankingVentas(topK, ventana);
 		this.compras = new ArrayIndexedList<>();
 		this.productos = new ArrayIndexedList<>();
+		this.productosPorCantidad = new TreeSet<>(POR_CANTIDAD);
+		this.umbralStockBajo = 0;
+		this.listenersStockBajo = new ArrayList<>();
+		this.pedidosPendientes = new HashMap<>();
+		this.modoReserva = false;
+		this.flujoCambios = null;
 	}
 
 	/**
@@ -38,17 +96,26 @@ public class Almacen implements ClienteAPI, AlmacenAPI, ProductorAPI {
 		// Si el producto ya existe, se actualiza su cantidad
 		if (indice < productos.size() && productos.get(indice).getProductoId().compareTo(productoId) == 0) {
 			Producto producto = productos.get(indice);
-			producto.setCantidadDisponible(producto.getCantidadDisponible() + cantidad);
+			actualizarCantidad(producto, producto.getCantidadDisponible() + cantidad);
 		} else {
 			// Crear un nuevo producto y añadirlo en la posición correcta
 			Producto nuevoProducto = new Producto(productoId, cantidad);
 			productos.add(indice, nuevoProducto);
+			darDeAlta(nuevoProducto);
 		}
+		Producto producto = productos.get(indice);
+		publicar(EventoAlmacen.Tipo.REABASTECIMIENTO, null, producto, cantidad, -1);
+
+		// Con el nuevo stock se sirven los pedidos que estaban esperando
+		servirPedidosPendientes(producto);
 	}
 
 	/**
 	 * Devuelve el producto con el identificador dado si está en el almacén.
 	 *
+	 * El producto devuelto es el del almacén, no una copia; su cantidad solo se
+	 * puede cambiar a través del almacén (pedir, reabastecerProducto...).
+	 *
 	 * @param productoId El identificador del producto
 	 * @return El producto si se encuentra, o null si no existe
 	 *
@@ -56,12 +123,10 @@ public class Almacen implements ClienteAPI, AlmacenAPI, ProductorAPI {
 	 * 
 	 */
 	public Producto getProducto(String productoId) {
-		// Se recorre la lista de productos para encontrar el producto con el ID correspondiente
-		for (int i = 0; i < productos.size(); i++) {
-			Producto producto = productos.get(i);
-			if (producto.getProductoId().compareTo(productoId) == 0) {
-				return producto;
-			}
+		// Los productos estan ordenados, asi que basta con una búsqueda binaria
+		int indice = busquedaBinariaEnProductos(productoId);
+		if (indice < productos.size() && productos.get(indice).getProductoId().compareTo(productoId) == 0) {
+			return productos.get(indice);
 		}
 		return null; // Producto no encontrado
 	}
@@ -89,6 +154,8 @@ public class Almacen implements ClienteAPI, AlmacenAPI, ProductorAPI {
 	   * Todos los productos conocidos, ordenados por productoId en orden ascendente.
 	   * Notad que la lista devuelta tiene que ser nueva, es decir, no se puede
 	   * devolver la lista que contiene el atributo productos dentro la clase Almacen.
+	   * Los productos de la lista son los del almacén, no copias; su cantidad solo
+	   * se puede cambiar a través del almacén.
 	  
 	 * @return Una lista nueva de productos ordenada por productoId
 	 */
@@ -168,25 +235,420 @@ public class Almacen implements ClienteAPI, AlmacenAPI, ProductorAPI {
 	 * @param cantidad   La cantidad de productos a comprar
 	 * @return El identificador de la compra si es exitosa, o null si no hay
 	 *         suficientes productos
+	 * @throws IllegalArgumentException si cantidad no es positiva
 	 */
 	@Override
 	public Integer pedir(String clienteId, String productoId, int cantidad) {
+		return pedir(clienteId, productoId, cantidad, null);
+	}
+
+	/**
+	 * Igual que pedir(clienteId, productoId, cantidad), pero si el modo reserva
+	 * esta activado y no hay suficientes artículos, el pedido se guarda en la cola
+	 * de pedidos pendientes del producto. Cuando reabastecerProducto traiga
+	 * suficientes artículos, el pedido se sirve (en orden de llegada) y se avisa
+	 * al listener.
+	 *
+	 * Con el modo reserva activado, si el producto ya tiene pedidos pendientes el
+	 * nuevo pedido se pone a la cola aunque haya stock, para no saltarse a los que
+	 * esperan. Con el modo reserva desactivado, el pedido se sirve si hay stock
+	 * (los pendientes anteriores siguen esperando al reabastecimiento).
+	 *
+	 * Cuando devuelve null, el listener sabe si el pedido ha quedado pendiente
+	 * (pedidoPendiente) o se ha rechazado (pedidoRechazado).
+	 *
+	 * @param clienteId  El identificador del cliente
+	 * @param productoId El identificador del producto
+	 * @param cantidad   La cantidad de productos a comprar
+	 * @param listener   A quien avisar cuando se sirva un pedido pendiente (puede
+	 *                   ser null)
+	 * @return El identificador de la compra si se sirve en el momento, o null si
+	 *         no se sirve: no hay suficientes productos, o hay pedidos pendientes
+	 *         y el modo reserva esta activado (en ambos casos el pedido queda
+	 *         pendiente si el modo reserva esta activado)
+	 * @throws IllegalArgumentException si cantidad no es positiva
+	 */
+	public Integer pedir(String clienteId, String productoId, int cantidad, PedidoListener listener) {
+		if (cantidad <= 0) {
+			throw new IllegalArgumentException("cantidad=" + cantidad);
+		}
 		// Se obtiene el producto solicitado
 		Producto producto = getProducto(productoId);
-		if (producto != null && producto.getCantidadDisponible() >= cantidad) {
-			// Si hay suficiente cantidad, se reduce la cantidad disponible
-			producto.setCantidadDisponible(producto.getCantidadDisponible() - cantidad);
+		ArrayDeque<PedidoPendiente> cola = pedidosPendientes.get(productoId);
 
-			// Se crea una nueva compra y se registra
-			Compra nuevaCompra = new Compra(clienteId, productoId, cantidad);
-			compras.add(compras.size(), nuevaCompra);
+		// En modo reserva, si ya hay pedidos esperando, el nuevo pedido no se los
+		// puede saltar
+		boolean esperando = modoReserva && cola != null;
+		if (producto != null && !esperando && producto.getCantidadDisponible() >= cantidad) {
+			return registrarCompra(producto, clienteId, cantidad);
+		}
 
-			// Se devuelve el ID de la compra
-			return nuevaCompra.getCompraId();
+		if (modoReserva) {
+			if (cola == null) {
+				cola = new ArrayDeque<>();
+				pedidosPendientes.put(productoId, cola);
+			}
+			PedidoPendiente pedido = new PedidoPendiente(clienteId, productoId, cantidad, listener);
+			cola.addLast(pedido);
+			if (listener != null) {
+				listener.pedidoPendiente(pedido);
+			}
+		} else if (listener != null) {
+			listener.pedidoRechazado(clienteId, productoId, cantidad);
+		}
+		if (flujoCambios != null) {
+			flujoCambios.publicar(modoReserva ? EventoAlmacen.Tipo.PEDIDO_PENDIENTE : EventoAlmacen.Tipo.PEDIDO_RECHAZADO,
+					clienteId, productoId, cantidad, -1, producto == null ? 0 : producto.getCantidadDisponible());
 		}
 		return null; // No se pudo procesar el pedido
 	}
 
+	/**
+	 * Activa o desactiva el modo reserva. Desactivarlo no descarta los pedidos
+	 * que ya estan pendientes; se siguen sirviendo al reabastecer.
+	 *
+	 * @param modoReserva true para que los pedidos sin stock queden pendientes
+	 */
+	public void setModoReserva(boolean modoReserva) {
+		this.modoReserva = modoReserva;
+	}
+
+	/**
+	 * Devuelve si el modo reserva esta activado.
+	 *
+	 * @return true si los pedidos sin stock quedan pendientes
+	 */
+	public boolean getModoReserva() {
+		return modoReserva;
+	}
+
+	/**
+	 * Devuelve los pedidos pendientes de un producto, en orden de llegada.
+	 *
+	 * @param productoId El identificador del producto
+	 * @return Una lista nueva con los pedidos pendientes del producto
+	 */
+	public IndexedList<PedidoPendiente> pedidosPendientes(String productoId) {
+		IndexedList<PedidoPendiente> resultado = new ArrayIndexedList<>();
+		ArrayDeque<PedidoPendiente> cola = pedidosPendientes.get(productoId);
+		if (cola != null) {
+			for (PedidoPendiente pedido : cola) {
+				resultado.add(resultado.size(), pedido);
+			}
+		}
+		return resultado;
+	}
+
+	/**
+	 * Activa el flujo de cambios: a partir de ahora cada pedir,
+	 * reabastecerProducto e importacion publica un evento en un buffer circular
+	 * de la capacidad dada. Los consumidores se crean con
+	 * FlujoCambios.nuevoConsumidor().
+	 *
+	 * @param capacidad El numero de eventos del buffer
+	 * @param politica  Que hacer cuando los consumidores no dan abasto
+	 * @return El flujo de cambios
+	 */
+	public FlujoCambios activarFlujoCambios(int capacidad, FlujoCambios.Politica politica) {
+		flujoCambios = new FlujoCambios(capacidad, politica);
+		return flujoCambios;
+	}
+
+	/**
+	 * Igual que activarFlujoCambios(capacidad, politica), pero con BLOQUEAR el
+	 * almacen espera como mucho esperaMaxima antes de descartar un evento.
+	 *
+	 * @param capacidad    El numero de eventos del buffer
+	 * @param politica     Que hacer cuando los consumidores no dan abasto
+	 * @param esperaMaxima La espera maxima con BLOQUEAR
+	 * @param unidad       La unidad de esperaMaxima
+	 * @return El flujo de cambios
+	 */
+	public FlujoCambios activarFlujoCambios(int capacidad, FlujoCambios.Politica politica, long esperaMaxima,
+			TimeUnit unidad) {
+		flujoCambios = new FlujoCambios(capacidad, politica, esperaMaxima, unidad);
+		return flujoCambios;
+	}
+
+	/**
+	 * Devuelve el flujo de cambios, o null si no esta activado.
+	 *
+	 * @return El flujo de cambios
+	 */
+	public FlujoCambios getFlujoCambios() {
+		return flujoCambios;
+	}
+
+	/**
+	 * Reduce la cantidad disponible del producto y registra la compra.
+	 *
+	 * @return El identificador de la nueva compra
+	 */
+	private Integer registrarCompra(Producto producto, String clienteId, int cantidad) {
+		String productoId = producto.getProductoId();
+		actualizarCantidad(producto, producto.getCantidadDisponible() - cantidad);
+
+		// Se crea una nueva compra y se registra
+		Compra nuevaCompra = new Compra(clienteId, productoId, cantidad);
+		compras.add(compras.size(), nuevaCompra);
+		rankingProductos.sumar(productoId, cantidad);
+		rankingClientes.sumar(clienteId, cantidad);
+		publicar(EventoAlmacen.Tipo.COMPRA, clienteId, producto, cantidad, nuevaCompra.getCompraId());
+
+		// Se devuelve el ID de la compra
+		return nuevaCompra.getCompraId();
+	}
+
+	/**
+	 * Mezcla en una sola pasada lineal los productos dados con los que ya hay en
+	 * el almacen, en lugar de pagar una búsqueda binaria y un desplazamiento del
+	 * array por cada producto. Un producto que ya existe suma la cantidad, igual
+	 * que en reabastecerProducto. Al terminar se sirven los pedidos pendientes.
+	 * Lo usa ImportadorAlmacen.
+	 *
+	 * Primero se lee todo nuevos sin tocar el almacen, y solo despues se cambian
+	 * la lista de productos y el indice por cantidad. Asi, si el iterador lanza
+	 * una excepcion (por ejemplo un error de E/S al leer un tramo), el almacen
+	 * se queda como estaba.
+	 *
+	 * @param nuevos Los productos a añadir, ordenados por productoId y sin
+	 *               productoId repetidos
+	 */
+	void fusionarProductos(Iterator<Producto> nuevos) {
+		ArrayIndexedList<Producto> fusion = new ArrayIndexedList<>();
+		// Cambios pendientes en orden de productoId: el producto existente (o null
+		// si es nuevo) y el producto leido con la cantidad a sumar
+		List<Producto> existentes = new ArrayList<>();
+		List<Producto> entrantes = new ArrayList<>();
+		int indice = 0;
+		Producto nuevo = nuevos.hasNext() ? nuevos.next() : null;
+
+		while (indice < productos.size() || nuevo != null) {
+			int comparacion;
+			if (nuevo == null) {
+				comparacion = -1;
+			} else if (indice == productos.size()) {
+				comparacion = 1;
+			} else {
+				comparacion = productos.get(indice).getProductoId().compareTo(nuevo.getProductoId());
+			}
+
+			if (comparacion < 0) {
+				// Producto existente que no se reabastece
+				fusion.add(fusion.size(), productos.get(indice++));
+			} else if (comparacion == 0) {
+				// Producto existente que se reabastece
+				Producto producto = productos.get(indice++);
+				fusion.add(fusion.size(), producto);
+				existentes.add(producto);
+				entrantes.add(nuevo);
+				nuevo = nuevos.hasNext() ? nuevos.next() : null;
+			} else {
+				// Producto nuevo
+				fusion.add(fusion.size(), nuevo);
+				existentes.add(null);
+				entrantes.add(nuevo);
+				nuevo = nuevos.hasNext() ? nuevos.next() : null;
+			}
+		}
+
+		// Ya no puede fallar la lectura: se aplican los cambios
+		productos = fusion;
+		for (int i = 0; i < entrantes.size(); i++) {
+			Producto producto = existentes.get(i);
+			Producto entrante = entrantes.get(i);
+			if (producto == null) {
+				producto = entrante;
+				darDeAlta(producto);
+			} else {
+				actualizarCantidad(producto, producto.getCantidadDisponible() + entrante.getCantidadDisponible());
+			}
+			publicar(EventoAlmacen.Tipo.REABASTECIMIENTO, null, producto, entrante.getCantidadDisponible(), -1);
+		}
+
+		// Se copian las claves porque servir un pedido puede vaciar su cola
+		for (String productoId : new ArrayList<>(pedidosPendientes.keySet())) {
+			Producto producto = getProducto(productoId);
+			if (producto != null) {
+				servirPedidosPendientes(producto);
+			}
+		}
+	}
+
+	/**
+	 * Registra una compra ya realizada (por ejemplo importada de un historico)
+	 * sin cambiar la cantidad disponible del producto. Lo usa ImportadorAlmacen.
+	 *
+	 * @throws IllegalArgumentException si cantidad no es positiva
+	 */
+	void registrarCompraImportada(String clienteId, String productoId, int cantidad) {
+		if (cantidad <= 0) {
+			throw new IllegalArgumentException("cantidad=" + cantidad);
+		}
+		Compra compra = new Compra(clienteId, productoId, cantidad);
+		compras.add(compras.size(), compra);
+		rankingProductos.sumar(productoId, cantidad);
+		rankingClientes.sumar(clienteId, cantidad);
+		if (flujoCambios != null) {
+			Producto producto = getProducto(productoId);
+			flujoCambios.publicar(EventoAlmacen.Tipo.COMPRA, clienteId, productoId, cantidad, compra.getCompraId(),
+					producto == null ? 0 : producto.getCantidadDisponible());
+		}
+	}
+
+	/**
+	 * Añade un producto nuevo al indice por cantidad, y avisa a los listeners si
+	 * ya esta por debajo del umbral de stock bajo.
+	 */
+	private void darDeAlta(Producto producto) {
+		productosPorCantidad.add(producto);
+		if (producto.getCantidadDisponible() < umbralStockBajo) {
+			avisarStockBajo(producto);
+		}
+	}
+
+	/**
+	 * Sirve, en orden de llegada, los pedidos pendientes del producto mientras
+	 * haya suficientes artículos para el primero de la cola.
+	 */
+	private void servirPedidosPendientes(Producto producto) {
+		ArrayDeque<PedidoPendiente> cola = pedidosPendientes.get(producto.getProductoId());
+		if (cola == null) {
+			return;
+		}
+
+		while (!cola.isEmpty() && cola.peekFirst().getCantidad() <= producto.getCantidadDisponible()) {
+			PedidoPendiente pedido = cola.removeFirst();
+			Integer compraId = registrarCompra(producto, pedido.getClienteId(), pedido.getCantidad());
+			if (pedido.getListener() != null) {
+				pedido.getListener().pedidoServido(pedido, compraId);
+			}
+		}
+
+		if (cola.isEmpty()) {
+			pedidosPendientes.remove(producto.getProductoId());
+		}
+	}
+
+	/**
+	 * Devuelve los productos cuya cantidad disponible es estrictamente menor que
+	 * n, ordenados por cantidad disponible ascendente (y por productoId en caso de
+	 * empate). Usa el indice secundario, por lo que cuesta O(log n + k) siendo k
+	 * el numero de productos devueltos.
+	 *
+	 * @param n La cantidad limite (excluida)
+	 * @return Una lista nueva con los productos por debajo de n
+	 */
+	public IndexedList<Producto> productosPorDebajoDe(int n) {
+		IndexedList<Producto> resultado = new ArrayIndexedList<>();
+		// El producto centinela tiene el menor productoId posible, de modo que
+		// headSet deja fuera todos los productos con cantidad n o mayor
+		for (Producto producto : productosPorCantidad.headSet(new Producto("", n), false)) {
+			resultado.add(resultado.size(), producto);
+		}
+		return resultado;
+	}
+
+	/**
+	 * Devuelve los productos con mas unidades vendidas (en la ventana de compras
+	 * recientes si se ha configurado), de mayor a menor, junto con las unidades.
+	 * Se mantiene de forma incremental en cada pedir, asi que cuesta O(K).
+	 *
+	 * @return Una lista nueva con como mucho K pares (productoId, unidades)
+	 */
+	public IndexedList<Pair<String, Long>> topProductos() {
+		return rankingProductos.top();
+	}
+
+	/**
+	 * Devuelve los clientes con mas unidades compradas (en la ventana de compras
+	 * recientes si se ha configurado), de mayor a menor, junto con las unidades.
+	 * Se mantiene de forma incremental en cada pedir, asi que cuesta O(K).
+	 *
+	 * @return Una lista nueva con como mucho K pares (clienteId, unidades)
+	 */
+	public IndexedList<Pair<String, Long>> topClientes() {
+		return rankingClientes.top();
+	}
+
+	/**
+	 * Cambia el umbral de stock bajo. Los listeners se avisan cuando la cantidad
+	 * disponible de un producto cruza este umbral en pedir o reabastecerProducto.
+	 * Cambiar el umbral no genera avisos.
+	 *
+	 * @param umbral El nuevo umbral
+	 */
+	public void setUmbralStockBajo(int umbral) {
+		this.umbralStockBajo = umbral;
+	}
+
+	/**
+	 * Devuelve el umbral de stock bajo.
+	 *
+	 * @return El umbral actual
+	 */
+	public int getUmbralStockBajo() {
+		return umbralStockBajo;
+	}
+
+	/**
+	 * Registra un listener que se avisa cuando un producto cruza el umbral de
+	 * stock bajo.
+	 *
+	 * @param listener El listener a registrar
+	 */
+	public void addStockBajoListener(StockBajoListener listener) {
+		listenersStockBajo.add(listener);
+	}
+
+	/**
+	 * Borra un listener registrado con addStockBajoListener.
+	 *
+	 * @param listener El listener a borrar
+	 * @return true si el listener estaba registrado
+	 */
+	public boolean removeStockBajoListener(StockBajoListener listener) {
+		return listenersStockBajo.remove(listener);
+	}
+
+	/**
+	 * Cambia la cantidad disponible de un producto manteniendo el indice por
+	 * cantidad, y avisa a los listeners si se cruza el umbral de stock bajo.
+	 *
+	 * @param producto      El producto a actualizar
+	 * @param nuevaCantidad La nueva cantidad disponible
+	 */
+	private void actualizarCantidad(Producto producto, int nuevaCantidad) {
+		int antiguaCantidad = producto.getCantidadDisponible();
+
+		// Hay que sacarlo del indice antes de cambiar la clave de ordenacion
+		productosPorCantidad.remove(producto);
+		producto.setCantidadDisponible(nuevaCantidad);
+		productosPorCantidad.add(producto);
+
+		if (antiguaCantidad >= umbralStockBajo && nuevaCantidad < umbralStockBajo) {
+			avisarStockBajo(producto);
+		} else if (antiguaCantidad < umbralStockBajo && nuevaCantidad >= umbralStockBajo) {
+			for (StockBajoListener listener : listenersStockBajo) {
+				listener.stockRecuperado(producto, umbralStockBajo);
+			}
+		}
+	}
+
+	// Publica un evento si el flujo de cambios esta activado
+	private void publicar(EventoAlmacen.Tipo tipo, String clienteId, Producto producto, int cantidad, int compraId) {
+		if (flujoCambios != null) {
+			flujoCambios.publicar(tipo, clienteId, producto.getProductoId(), cantidad, compraId,
+					producto.getCantidadDisponible());
+		}
+	}
+
+	private void avisarStockBajo(Producto producto) {
+		for (StockBajoListener listener : listenersStockBajo) {
+			listener.stockBajo(producto, umbralStockBajo);
+		}
+	}
+
 	/**
 	 * Realiza una búsqueda binaria en la lista de productos para encontrar el
 	 * índice de un producto con el productoId dado, o la posición donde debería
@@ -0,0 +1,250 @@
+package aed.almacen;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import es.upm.aedlib.indexedlist.IndexedList;
+import es.upm.aedlib.indexedlist.ArrayIndexedList;
+
+/**
+ * Un almacen repartido en varios fragmentos (objetos Almacen). Cada productoId
+ * se asigna a un fragmento mediante hashing consistente, de modo que todos los
+ * datos de un producto (stock, compras, pedidos pendientes) viven en un solo
+ * fragmento. Las consultas que afectan a varios fragmentos se ejecutan en
+ * paralelo y se combinan sus resultados.
+ *
+ * Los identificadores de compra son unicos entre fragmentos porque todos se
+ * asignan con el mismo contador global de Compra.
+ */
+public class AlmacenFragmentado implements ClienteAPI, AlmacenAPI, ProductorAPI {
+
+	// Nodos virtuales por fragmento en el anillo por defecto
+	private static final int NODOS_VIRTUALES_POR_DEFECTO = 64;
+	// Orden de las compras de un Almacen
+	private static final Comparator<Compra> POR_COMPRA_ID = (a, b) -> a.getCompraId().compareTo(b.getCompraId());
+
+	// Los fragmentos. Almacen no es thread-safe, asi que cada acceso a un
+	// fragmento se sincroniza sobre el propio fragmento.
+	private Almacen[] fragmentos;
+	// Anillo de hashing consistente: hash de un nodo virtual -> fragmento
+	private TreeMap<Integer, Integer> anillo;
+	// Hilos que ejecutan las consultas sobre todos los fragmentos
+	private ExecutorService hilos;
+
+	/**
+	 * Crea un almacen con numFragmentos fragmentos.
+	 *
+	 * @param numFragmentos El numero de fragmentos
+	 */
+	public AlmacenFragmentado(int numFragmentos) {
+		this(numFragmentos, NODOS_VIRTUALES_POR_DEFECTO);
+	}
+
+	/**
+	 * Crea un almacen con numFragmentos fragmentos, cada uno con nodosVirtuales
+	 * puntos en el anillo de hashing consistente.
+	 *
+	 * @param numFragmentos  El numero de fragmentos
+	 * @param nodosVirtuales El numero de puntos de cada fragmento en el anillo
+	 */
+	public AlmacenFragmentado(int numFragmentos, int nodosVirtuales) {
+		if (numFragmentos <= 0 || nodosVirtuales <= 0) {
+			throw new IllegalArgumentException(
+					"numFragmentos=" + numFragmentos + ", nodosVirtuales=" + nodosVirtuales);
+		}
+		this.fragmentos = new Almacen[numFragmentos];
+		this.anillo = new TreeMap<>();
+		for (int i = 0; i < numFragmentos; i++) {
+			fragmentos[i] = new Almacen();
+			for (int v = 0; v < nodosVirtuales; v++) {
+				anillo.put(hash("fragmento-" + i + "#" + v), i);
+			}
+		}
+		this.hilos = Executors.newFixedThreadPool(numFragmentos, r -> {
+			Thread hilo = new Thread(r, "almacen-fragmentado");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+	}
+
+	/**
+	 * Devuelve el numero de fragmentos.
+	 */
+	public int numFragmentos() {
+		return fragmentos.length;
+	}
+
+	/**
+	 * Devuelve el fragmento donde vive un producto: el primer nodo del anillo
+	 * cuyo hash es mayor o igual que el hash del productoId.
+	 *
+	 * @param productoId El identificador del producto
+	 * @return El indice del fragmento
+	 */
+	public int fragmentoDe(String productoId) {
+		Integer nodo = anillo.ceilingKey(hash(productoId));
+		if (nodo == null) {
+			nodo = anillo.firstKey(); // Se da la vuelta al anillo
+		}
+		return anillo.get(nodo);
+	}
+
+	/**
+	 * Para los hilos de las consultas. El almacen no se debe usar despues.
+	 */
+	public void cerrar() {
+		hilos.shutdown();
+	}
+
+	@Override
+	public Integer pedir(String clienteId, String productoId, int cantidad) {
+		Almacen fragmento = fragmentos[fragmentoDe(productoId)];
+		synchronized (fragmento) {
+			return fragmento.pedir(clienteId, productoId, cantidad);
+		}
+	}
+
+	@Override
+	public void reabastecerProducto(String productoId, int cantidad) {
+		Almacen fragmento = fragmentos[fragmentoDe(productoId)];
+		synchronized (fragmento) {
+			fragmento.reabastecerProducto(productoId, cantidad);
+		}
+	}
+
+	@Override
+	public Producto getProducto(String productoId) {
+		Almacen fragmento = fragmentos[fragmentoDe(productoId)];
+		synchronized (fragmento) {
+			return fragmento.getProducto(productoId);
+		}
+	}
+
+	@Override
+	public IndexedList<Compra> comprasProducto(String productoId) {
+		Almacen fragmento = fragmentos[fragmentoDe(productoId)];
+		synchronized (fragmento) {
+			return fragmento.comprasProducto(productoId);
+		}
+	}
+
+	/**
+	 * El identificador de compra no dice en que fragmento esta la compra, asi que
+	 * se pregunta a todos en paralelo.
+	 */
+	@Override
+	public Compra getCompra(Integer compraId) {
+		for (Compra compra : enTodos(fragmento -> fragmento.getCompra(compraId))) {
+			if (compra != null) {
+				return compra;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Cada fragmento devuelve sus productos ordenados por productoId, y se
+	 * mezclan (k-way merge) para mantener el orden global.
+	 */
+	@Override
+	public IndexedList<Producto> getProductos() {
+		return mezclar(enTodos(fragmento -> fragmento.getProductos()),
+				(a, b) -> a.getProductoId().compareTo(b.getProductoId()));
+	}
+
+	/**
+	 * Como en un solo Almacen, las compras se devuelven por orden de compraId:
+	 * se mezclan las listas de los fragmentos, que ya vienen en ese orden.
+	 */
+	@Override
+	public IndexedList<Compra> getCompras() {
+		return mezclar(enTodos(fragmento -> fragmento.getCompras()), POR_COMPRA_ID);
+	}
+
+	@Override
+	public IndexedList<Compra> comprasCliente(String clienteId) {
+		return mezclar(enTodos(fragmento -> fragmento.comprasCliente(clienteId)), POR_COMPRA_ID);
+	}
+
+	// Una consulta que se ejecuta sobre un fragmento
+	private interface Consulta<T> {
+		T ejecutar(Almacen fragmento);
+	}
+
+	/**
+	 * Ejecuta la consulta en paralelo sobre todos los fragmentos y devuelve los
+	 * resultados en el orden de los fragmentos.
+	 */
+	private <T> List<T> enTodos(Consulta<T> consulta) {
+		List<Callable<T>> tareas = new ArrayList<>(fragmentos.length);
+		for (Almacen fragmento : fragmentos) {
+			tareas.add(() -> {
+				synchronized (fragmento) {
+					return consulta.ejecutar(fragmento);
+				}
+			});
+		}
+
+		List<T> resultados = new ArrayList<>(fragmentos.length);
+		try {
+			for (Future<T> futuro : hilos.invokeAll(tareas)) {
+				resultados.add(futuro.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Consulta interrumpida", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Fallo en un fragmento", e.getCause());
+		}
+		return resultados;
+	}
+
+	/**
+	 * Mezcla (k-way merge) listas ordenadas segun orden en una sola lista
+	 * ordenada.
+	 */
+	private static <T> IndexedList<T> mezclar(List<IndexedList<T>> listas, Comparator<T> orden) {
+		// Cola con la posicion actual de cada lista, ordenada por el elemento
+		// en esa posicion: {lista, indice}
+		PriorityQueue<int[]> frente = new PriorityQueue<>(
+				(a, b) -> orden.compare(listas.get(a[0]).get(a[1]), listas.get(b[0]).get(b[1])));
+		for (int i = 0; i < listas.size(); i++) {
+			if (!listas.get(i).isEmpty()) {
+				frente.add(new int[] { i, 0 });
+			}
+		}
+
+		IndexedList<T> resultado = new ArrayIndexedList<>();
+		while (!frente.isEmpty()) {
+			int[] cursor = frente.poll();
+			IndexedList<T> lista = listas.get(cursor[0]);
+			resultado.add(resultado.size(), lista.get(cursor[1]));
+			if (++cursor[1] < lista.size()) {
+				frente.add(cursor);
+			}
+		}
+		return resultado;
+	}
+
+	/**
+	 * Hash de una cadena con el mezclado final de MurmurHash3, para que los
+	 * nodos virtuales se repartan bien por el anillo.
+	 */
+	private static int hash(String clave) {
+		int h = clave.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
@@ -1,11 +1,15 @@
 package aed.almacen;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Guarda informacion sobre una compra realizada.
  */
 public class Compra implements Comparable<Compra> {
 
-  private static int compraIdContador = 1;
+  // Atomico porque varios almacenes (por ejemplo los fragmentos de
+  // AlmacenFragmentado) pueden crear compras a la vez.
+  private static final AtomicInteger compraIdContador = new AtomicInteger(1);
 
   // La identidad de la compra (asignado automaticamente por el constructor).
   private Integer compraId;
@@ -21,7 +25,7 @@ public class Compra implements Comparable<Compra> {
    * de compra compraId automaticamente.
    */
   public Compra(String clienteId, String productoId, int cantidad) {
-    this.compraId = compraIdContador++;
+    this.compraId = compraIdContador.getAndIncrement();
     this.clienteId = clienteId;
     this.productoId = productoId;
     this.cantidad = cantidad;
@@ -0,0 +1,126 @@
+package aed.almacen;
+
+/**
+ * Un lector de un FlujoCambios con su propia posicion. Un consumidor solo se
+ * debe usar desde un hilo.
+ */
+public class ConsumidorCambios {
+
+	private final FlujoCambios flujo;
+	// Ultima secuencia leida
+	private volatile long leido;
+	// Eventos sobrescritos antes de que este consumidor los leyera
+	private long perdidos;
+	// Hilo que esta dentro de leer, o null; el productor no le espera
+	private volatile Thread hiloLector;
+	// Copias de las casillas que recibe el manejador: una se entrega mientras
+	// la otra se valida
+	private final EventoAlmacen[] copias;
+
+	/**
+	 * Constructor para USO INTERNO solo.
+	 */
+	ConsumidorCambios(FlujoCambios flujo, long leido) {
+		this.flujo = flujo;
+		this.leido = leido;
+		this.perdidos = 0;
+		this.copias = new EventoAlmacen[] { new EventoAlmacen(), new EventoAlmacen() };
+	}
+
+	/**
+	 * Lee como mucho maxLote eventos publicados y aun no leidos, llamando al
+	 * manejador por cada uno. No espera si no hay eventos.
+	 *
+	 * Cada evento se copia de su casilla y solo se entrega si la casilla no se
+	 * ha sobrescrito durante la copia; si no, se cuenta como perdido junto con
+	 * el resto del lote. El ultimo evento entregado lleva finDeLote a true.
+	 *
+	 * @param manejador Quien procesa los eventos
+	 * @param maxLote   El numero maximo de eventos del lote
+	 * @return El numero de eventos leidos
+	 */
+	public int leer(ManejadorEventos manejador, int maxLote) {
+		if (maxLote <= 0) {
+			throw new IllegalArgumentException("maxLote=" + maxLote);
+		}
+		long siguiente = leido + 1;
+		long disponible = flujo.getPublicado();
+
+		// Con SOBRESCRIBIR el productor no espera: se salta lo ya sobrescrito
+		long masAntiguo = disponible - flujo.capacidad() + 1;
+		if (siguiente < masAntiguo) {
+			perdidos += masAntiguo - siguiente;
+			siguiente = masAntiguo;
+		}
+
+		long ultimo = Math.min(disponible, siguiente + maxLote - 1);
+		int leidos = 0;
+		// Cada evento se entrega cuando se ha validado el siguiente, para
+		// saber cual es el ultimo del lote
+		EventoAlmacen pendiente = null;
+		hiloLector = Thread.currentThread();
+		try {
+			for (long secuencia = siguiente; secuencia <= ultimo; secuencia++) {
+				EventoAlmacen copia = copias[leidos % 2];
+				if (!copia.copiarDe(flujo.casilla(secuencia), secuencia)) {
+					// Sobrescrito mientras se leia el lote
+					perdidos += ultimo - secuencia + 1;
+					break;
+				}
+				if (pendiente != null) {
+					manejador.evento(pendiente, false);
+				}
+				pendiente = copia;
+				leidos++;
+			}
+			if (pendiente != null) {
+				manejador.evento(pendiente, true);
+			}
+		} finally {
+			hiloLector = null;
+		}
+
+		// Libera las casillas para el productor
+		leido = ultimo < siguiente ? leido : ultimo;
+		return leidos;
+	}
+
+	/**
+	 * Devuelve el numero de eventos publicados y aun no leidos.
+	 */
+	public long pendientes() {
+		return flujo.getPublicado() - leido;
+	}
+
+	/**
+	 * Devuelve el numero de eventos que se perdieron porque se sobrescribieron
+	 * antes de leerlos (solo con la politica SOBRESCRIBIR).
+	 */
+	public long getPerdidos() {
+		return perdidos;
+	}
+
+	/**
+	 * Deja de consumir: el productor ya no espera a este consumidor. Un
+	 * consumidor abandonado sin cerrar hace que, con BLOQUEAR, cada vez que el
+	 * buffer se llena el almacen espere la espera maxima y descarte eventos.
+	 */
+	public void cerrar() {
+		flujo.quitar(this);
+	}
+
+	/**
+	 * Devuelve la ultima secuencia leida. Para USO INTERNO solo.
+	 */
+	long getLeido() {
+		return leido;
+	}
+
+	/**
+	 * Devuelve el hilo que esta leyendo, o null. Para USO INTERNO solo.
+	 */
+	Thread getHiloLector() {
+		return hiloLector;
+	}
+
+}
@@ -0,0 +1,146 @@
+package aed.almacen;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Un cambio en el almacen publicado en un FlujoCambios.
+ *
+ * Las casillas del buffer circular son objetos EventoAlmacen que se
+ * reutilizan. El manejador no recibe la casilla sino una copia del
+ * ConsumidorCambios, que tambien se reutiliza en la siguiente llamada: quien
+ * quiera guardar un evento despues de procesarlo tiene que copiar sus datos.
+ */
+public class EventoAlmacen {
+
+  /**
+   * Los tipos de cambio.
+   */
+  public enum Tipo {
+    // Una compra registrada (por pedir, al servir un pedido pendiente, o importada).
+    COMPRA,
+    // Un pedido sin stock que queda pendiente (modo reserva).
+    PEDIDO_PENDIENTE,
+    // Un pedido sin stock que se descarta.
+    PEDIDO_RECHAZADO,
+    // Llegada de productos (reabastecerProducto o importacion).
+    REABASTECIMIENTO
+  }
+
+  // Numero de secuencia del evento en el flujo; -1 mientras se rellena.
+  private volatile long secuencia;
+  private Tipo tipo;
+  // Null si el evento no tiene cliente (REABASTECIMIENTO).
+  private String clienteId;
+  private String productoId;
+  // Cantidad comprada, pedida o reabastecida.
+  private int cantidad;
+  // La compraId de una COMPRA, o -1.
+  private int compraId;
+  // Cantidad disponible del producto despues del cambio.
+  private int cantidadDisponible;
+
+  /**
+   * Constructor para USO INTERNO solo.
+   */
+  EventoAlmacen() {
+    this.secuencia = -1;
+  }
+
+  /**
+   * Rellena la casilla. Para USO INTERNO solo.
+   */
+  void rellenar(long secuencia, Tipo tipo, String clienteId, String productoId,
+                int cantidad, int compraId, int cantidadDisponible) {
+    // Invalida la casilla antes de tocar los datos, para que un lector que
+    // copie mientras tanto lo detecte al volver a comprobar la secuencia
+    this.secuencia = -1;
+    VarHandle.storeStoreFence();
+    this.tipo = tipo;
+    this.clienteId = clienteId;
+    this.productoId = productoId;
+    this.cantidad = cantidad;
+    this.compraId = compraId;
+    this.cantidadDisponible = cantidadDisponible;
+    this.secuencia = secuencia;
+  }
+
+  /**
+   * Copia en este evento los datos de la casilla si esta tiene la secuencia
+   * dada antes y despues de copiar. Devuelve false si la casilla se ha
+   * sobrescrito (o se estaba sobrescribiendo), y entonces la copia no vale.
+   * Para USO INTERNO solo.
+   */
+  boolean copiarDe(EventoAlmacen casilla, long secuencia) {
+    if (casilla.secuencia != secuencia) {
+      return false;
+    }
+    this.tipo = casilla.tipo;
+    this.clienteId = casilla.clienteId;
+    this.productoId = casilla.productoId;
+    this.cantidad = casilla.cantidad;
+    this.compraId = casilla.compraId;
+    this.cantidadDisponible = casilla.cantidadDisponible;
+    // Las lecturas de los datos no pueden moverse despues de la comprobacion
+    VarHandle.loadLoadFence();
+    if (casilla.secuencia != secuencia) {
+      return false;
+    }
+    this.secuencia = secuencia;
+    return true;
+  }
+
+  /**
+   * Devuelve el numero de secuencia del evento.
+   */
+  public long getSecuencia() {
+    return secuencia;
+  }
+
+  /**
+   * Devuelve el tipo de cambio.
+   */
+  public Tipo getTipo() {
+    return tipo;
+  }
+
+  /**
+   * Devuelve la identidad del cliente, o null si el evento no tiene cliente.
+   */
+  public String getClienteId() {
+    return clienteId;
+  }
+
+  /**
+   * Devuelve la identidad del producto.
+   */
+  public String getProductoId() {
+    return productoId;
+  }
+
+  /**
+   * Devuelve la cantidad comprada, pedida o reabastecida.
+   */
+  public int getCantidad() {
+    return cantidad;
+  }
+
+  /**
+   * Devuelve la identidad de la compra, o -1 si el evento no es una COMPRA.
+   */
+  public int getCompraId() {
+    return compraId;
+  }
+
+  /**
+   * Devuelve la cantidad disponible del producto despues del cambio.
+   */
+  public int getCantidadDisponible() {
+    return cantidadDisponible;
+  }
+
+  @Override
+  public String toString() {
+    return "EventoAlmacen("+secuencia+","+tipo+","+clienteId+","+productoId+","+cantidad+","+compraId+","+cantidadDisponible+")";
+  }
+
+}
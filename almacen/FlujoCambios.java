@@ -0,0 +1,208 @@
+package aed.almacen;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Flujo de cambios (change-data-capture) de un almacen: un buffer circular de
+ * eventos reservado al crearlo. El almacen publica un evento por cada pedir y
+ * reabastecerProducto sin reservar memoria, y cada ConsumidorCambios lee a su
+ * propio ritmo, en lotes, desde otro hilo si quiere.
+ *
+ * Solo puede haber un hilo publicando (el que usa el almacen). Cuando el
+ * consumidor mas lento va una vuelta entera por detras, la politica decide
+ * que pasa con el siguiente evento.
+ */
+public class FlujoCambios {
+
+	/**
+	 * Que hacer al publicar cuando el buffer esta lleno.
+	 */
+	public enum Politica {
+		// El almacen espera a que el consumidor mas lento libere una casilla,
+		// como mucho la espera maxima del flujo. Si se agota, o si el consumidor
+		// esta leyendo en el mismo hilo que publica (un manejador que llama al
+		// almacen), el evento se descarta como con DESCARTAR, y no se vuelve a
+		// esperar hasta que ese consumidor avance
+		BLOQUEAR,
+		// Se sobrescribe el evento mas antiguo; los consumidores lentos pierden
+		// eventos y lo ven en ConsumidorCambios.getPerdidos()
+		SOBRESCRIBIR,
+		// Se descarta el evento nuevo y se cuenta en getDescartados()
+		DESCARTAR
+	}
+
+	private final EventoAlmacen[] casillas;
+	private final int mascara;
+	// Espera por defecto con BLOQUEAR antes de descartar
+	private static final long ESPERA_MAXIMA_POR_DEFECTO = TimeUnit.SECONDS.toNanos(1);
+
+	private final Politica politica;
+	private final long esperaMaxima;
+	private final CopyOnWriteArrayList<ConsumidorCambios> consumidores;
+
+	// Ultima secuencia publicada (-1 si no se ha publicado nada)
+	private volatile long publicado;
+	// Cota inferior de lo leido por el consumidor mas lento, para no recorrer
+	// los consumidores en cada publicacion
+	private long minimoLeido;
+	// Valor de minimoLeido cuando se agoto la ultima espera con BLOQUEAR: hasta
+	// que cambie no se vuelve a esperar
+	private long sinAvanzar;
+	// Solo lo escribe el hilo que publica, pero lo leen otros
+	private volatile long descartados;
+
+	/**
+	 * Crea un flujo. Con BLOQUEAR, el almacen espera como mucho un segundo a que
+	 * los consumidores liberen una casilla.
+	 *
+	 * @param capacidad El numero de casillas; se redondea a una potencia de 2
+	 * @param politica  Que hacer cuando el buffer esta lleno
+	 */
+	public FlujoCambios(int capacidad, Politica politica) {
+		this(capacidad, politica, ESPERA_MAXIMA_POR_DEFECTO, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Crea un flujo.
+	 *
+	 * @param capacidad    El numero de casillas; se redondea a una potencia de 2
+	 * @param politica     Que hacer cuando el buffer esta lleno
+	 * @param esperaMaxima Lo que espera el almacen con BLOQUEAR antes de
+	 *                     descartar el evento
+	 * @param unidad       La unidad de esperaMaxima
+	 */
+	public FlujoCambios(int capacidad, Politica politica, long esperaMaxima, TimeUnit unidad) {
+		if (capacidad <= 0 || capacidad > (1 << 30)) {
+			throw new IllegalArgumentException("capacidad=" + capacidad);
+		}
+		if (esperaMaxima < 0) {
+			throw new IllegalArgumentException("esperaMaxima=" + esperaMaxima);
+		}
+		int tam = Integer.highestOneBit(capacidad);
+		if (tam < capacidad) {
+			tam <<= 1;
+		}
+		this.casillas = new EventoAlmacen[tam];
+		for (int i = 0; i < tam; i++) {
+			casillas[i] = new EventoAlmacen();
+		}
+		this.mascara = tam - 1;
+		this.politica = politica;
+		this.esperaMaxima = unidad.toNanos(esperaMaxima);
+		this.consumidores = new CopyOnWriteArrayList<>();
+		this.publicado = -1;
+		this.minimoLeido = -1;
+		this.sinAvanzar = Long.MIN_VALUE;
+		this.descartados = 0;
+	}
+
+	/**
+	 * Crea un consumidor que leera los eventos publicados a partir de ahora.
+	 */
+	public ConsumidorCambios nuevoConsumidor() {
+		ConsumidorCambios consumidor = new ConsumidorCambios(this, publicado);
+		consumidores.add(consumidor);
+		return consumidor;
+	}
+
+	/**
+	 * Devuelve el numero de casillas del buffer.
+	 */
+	public int capacidad() {
+		return casillas.length;
+	}
+
+	/**
+	 * Devuelve la politica del flujo.
+	 */
+	public Politica getPolitica() {
+		return politica;
+	}
+
+	/**
+	 * Devuelve la ultima secuencia publicada (-1 si no se ha publicado nada).
+	 */
+	public long getPublicado() {
+		return publicado;
+	}
+
+	/**
+	 * Devuelve el numero de eventos descartados con la politica DESCARTAR, o con
+	 * BLOQUEAR cuando no se pudo esperar.
+	 */
+	public long getDescartados() {
+		return descartados;
+	}
+
+	/**
+	 * Publica un evento. No reserva memoria. Para USO INTERNO solo.
+	 */
+	void publicar(EventoAlmacen.Tipo tipo, String clienteId, String productoId, int cantidad, int compraId,
+			int cantidadDisponible) {
+		long secuencia = publicado + 1;
+		long necesario = secuencia - casillas.length;
+
+		if (politica != Politica.SOBRESCRIBIR && necesario > minimoLeido) {
+			minimoLeido = calcularMinimoLeido(secuencia);
+			if (politica == Politica.BLOQUEAR && necesario > minimoLeido && minimoLeido != sinAvanzar
+					&& !leyendoEnEsteHilo()) {
+				long limite = System.nanoTime() + esperaMaxima;
+				while (necesario > minimoLeido && System.nanoTime() - limite < 0) {
+					LockSupport.parkNanos(1000);
+					minimoLeido = calcularMinimoLeido(secuencia);
+				}
+			}
+			if (necesario > minimoLeido) {
+				if (politica == Politica.BLOQUEAR) {
+					sinAvanzar = minimoLeido;
+				}
+				descartados++;
+				return;
+			}
+		}
+
+		casillas[(int) (secuencia & mascara)].rellenar(secuencia, tipo, clienteId, productoId, cantidad, compraId,
+				cantidadDisponible);
+		// La escritura volatile hace visibles los datos de la casilla
+		publicado = secuencia;
+	}
+
+	/**
+	 * Devuelve la casilla de una secuencia. Para USO INTERNO solo.
+	 */
+	EventoAlmacen casilla(long secuencia) {
+		return casillas[(int) (secuencia & mascara)];
+	}
+
+	/**
+	 * Quita un consumidor. Para USO INTERNO solo.
+	 */
+	void quitar(ConsumidorCambios consumidor) {
+		consumidores.remove(consumidor);
+	}
+
+	// True si algun consumidor esta leyendo en el hilo que publica: esperarle
+	// no serviria de nada, porque no avanza hasta que vuelva de publicar
+	private boolean leyendoEnEsteHilo() {
+		Thread actual = Thread.currentThread();
+		for (int i = 0; i < consumidores.size(); i++) {
+			if (consumidores.get(i).getHiloLector() == actual) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Lo leido por el consumidor mas lento (secuencia - 1 si no hay ninguno).
+	// Se recorre por indice para no crear un iterador.
+	private long calcularMinimoLeido(long secuencia) {
+		long minimo = secuencia - 1;
+		for (int i = 0; i < consumidores.size(); i++) {
+			minimo = Math.min(minimo, consumidores.get(i).getLeido());
+		}
+		return minimo;
+	}
+
+}
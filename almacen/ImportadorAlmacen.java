@@ -0,0 +1,446 @@
+package aed.almacen;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import es.upm.aedlib.indexedlist.IndexedList;
+
+/**
+ * Carga masiva de productos y compras en un almacen desde un fichero.
+ *
+ * Los productos se leen en tramos de como mucho filasPorTramo filas. Cada
+ * tramo se ordena en memoria por productoId y, si hay mas de uno, se vuelca a
+ * un fichero temporal. Despues los tramos se mezclan entre si y con los
+ * productos del almacen en una sola pasada lineal, en lugar de llamar a
+ * reabastecerProducto (búsqueda binaria y desplazamiento del array) por cada
+ * fila.
+ *
+ * Formatos:
+ * <ul>
+ * <li>CSV: una fila por linea, campos separados por comas. Productos:
+ * productoId,cantidad. Compras: clienteId,productoId,cantidad. Las lineas
+ * vacias o que empiezan por # se ignoran.</li>
+ * <li>BINARIO: las mismas filas, cada cadena como un short sin signo con la
+ * longitud seguido de sus bytes UTF-8, y la cantidad como un int big-endian.
+ * </li>
+ * </ul>
+ */
+public class ImportadorAlmacen {
+
+	/**
+	 * Formato del fichero a importar.
+	 */
+	public enum Formato {
+		CSV, BINARIO
+	}
+
+	// Filas de producto que se ordenan en memoria antes de volcar un tramo
+	private static final int FILAS_POR_TRAMO_POR_DEFECTO = 1 << 20;
+	// Tamaño del buffer de los ficheros binarios
+	private static final int TAM_BUFFER = 1 << 16;
+
+	private Almacen almacen;
+	private int filasPorTramo;
+
+	/**
+	 * Crea un importador para el almacen.
+	 *
+	 * @param almacen El almacen donde se importa
+	 */
+	public ImportadorAlmacen(Almacen almacen) {
+		this(almacen, FILAS_POR_TRAMO_POR_DEFECTO);
+	}
+
+	/**
+	 * Crea un importador para el almacen que ordena en memoria como mucho
+	 * filasPorTramo filas de producto a la vez.
+	 *
+	 * @param almacen       El almacen donde se importa
+	 * @param filasPorTramo El numero maximo de filas de un tramo
+	 */
+	public ImportadorAlmacen(Almacen almacen, int filasPorTramo) {
+		if (filasPorTramo <= 0) {
+			throw new IllegalArgumentException("filasPorTramo=" + filasPorTramo);
+		}
+		this.almacen = almacen;
+		this.filasPorTramo = filasPorTramo;
+	}
+
+	/**
+	 * Importa filas productoId,cantidad. Las filas del mismo producto se suman,
+	 * y el almacen se actualiza de una vez cuando se ha leido todo el fichero:
+	 * cada producto suma la cantidad total (o se da de alta si no existia) y
+	 * publica un solo evento REABASTECIMIENTO con ese total, no uno por fila.
+	 * Los pedidos pendientes se sirven al final, despues de actualizar todos
+	 * los productos, y no tras cada fila como con reabastecerProducto. Si el
+	 * fichero no se puede leer, el almacen no cambia.
+	 *
+	 * @param fichero El fichero a importar
+	 * @param formato El formato del fichero
+	 * @return El numero de filas y el rendimiento de la importacion
+	 * @throws IOException si no se puede leer el fichero o una fila es incorrecta
+	 */
+	public ResultadoImportacion importarProductos(Path fichero, Formato formato) throws IOException {
+		long inicio = System.nanoTime();
+		long filas = 0;
+		List<Path> tramos = new ArrayList<>();
+		List<Producto> tramo = new ArrayList<>();
+
+		try {
+			try (LectorFilas lector = abrir(fichero, formato, 1)) {
+				while (lector.siguiente()) {
+					tramo.add(new Producto(lector.cadena(0), lector.entero()));
+					filas++;
+					if (tramo.size() == filasPorTramo) {
+						tramos.add(volcarTramo(tramo));
+						tramo.clear();
+					}
+				}
+			}
+
+			if (tramos.isEmpty()) {
+				// Todo cabe en un tramo: no hace falta pasar por disco
+				almacen.fusionarProductos(ordenarTramo(tramo).iterator());
+			} else {
+				if (!tramo.isEmpty()) {
+					tramos.add(volcarTramo(tramo));
+				}
+				tramo = null;
+				try (MezclaTramos mezcla = new MezclaTramos(tramos)) {
+					almacen.fusionarProductos(mezcla);
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+			}
+		} finally {
+			for (Path fichTramo : tramos) {
+				Files.deleteIfExists(fichTramo);
+			}
+		}
+
+		return new ResultadoImportacion(filas, tramos.size(), System.nanoTime() - inicio);
+	}
+
+	/**
+	 * Importa filas clienteId,productoId,cantidad como compras ya realizadas: se
+	 * añaden al final de las compras (con compraId nuevos) y cuentan para los
+	 * rankings, pero no cambian la cantidad disponible de los productos. Las
+	 * cantidades tienen que ser positivas.
+	 *
+	 * @param fichero El fichero a importar
+	 * @param formato El formato del fichero
+	 * @return El numero de filas y el rendimiento de la importacion
+	 * @throws IOException si no se puede leer el fichero o una fila es incorrecta
+	 */
+	public ResultadoImportacion importarCompras(Path fichero, Formato formato) throws IOException {
+		long inicio = System.nanoTime();
+		long filas = 0;
+		try (LectorFilas lector = abrir(fichero, formato, 2)) {
+			while (lector.siguiente()) {
+				if (lector.entero() <= 0) {
+					throw new IOException("Fila " + (filas + 1) + ": la cantidad tiene que ser positiva");
+				}
+				almacen.registrarCompraImportada(lector.cadena(0), lector.cadena(1), lector.entero());
+				filas++;
+			}
+		}
+		return new ResultadoImportacion(filas, 0, System.nanoTime() - inicio);
+	}
+
+	/**
+	 * Escribe los productos del almacen en formato BINARIO, ordenados por
+	 * productoId.
+	 *
+	 * @param fichero El fichero donde se escribe
+	 * @throws IOException si no se puede escribir el fichero
+	 */
+	public void exportarProductos(Path fichero) throws IOException {
+		IndexedList<Producto> productos = almacen.getProductos();
+		try (EscritorBinario escritor = new EscritorBinario(fichero)) {
+			for (int i = 0; i < productos.size(); i++) {
+				escritor.escribir(productos.get(i));
+			}
+		}
+	}
+
+	private static LectorFilas abrir(Path fichero, Formato formato, int numCadenas) throws IOException {
+		switch (formato) {
+		case CSV:
+			return new LectorCsv(fichero, numCadenas);
+		case BINARIO:
+			return new LectorBinario(fichero, numCadenas);
+		default:
+			throw new IllegalArgumentException("Formato desconocido: " + formato);
+		}
+	}
+
+	/**
+	 * Ordena un tramo por productoId y junta las filas del mismo producto.
+	 */
+	private static List<Producto> ordenarTramo(List<Producto> tramo) {
+		Collections.sort(tramo);
+		List<Producto> ordenado = new ArrayList<>(tramo.size());
+		for (Producto producto : tramo) {
+			Producto ultimo = ordenado.isEmpty() ? null : ordenado.get(ordenado.size() - 1);
+			if (ultimo != null && ultimo.getProductoId().equals(producto.getProductoId())) {
+				ultimo.setCantidadDisponible(ultimo.getCantidadDisponible() + producto.getCantidadDisponible());
+			} else {
+				ordenado.add(producto);
+			}
+		}
+		return ordenado;
+	}
+
+	/**
+	 * Ordena un tramo y lo escribe en un fichero temporal en formato BINARIO.
+	 */
+	private static Path volcarTramo(List<Producto> tramo) throws IOException {
+		Path fichero = Files.createTempFile("almacen-tramo", ".bin");
+		try (EscritorBinario escritor = new EscritorBinario(fichero)) {
+			for (Producto producto : ordenarTramo(tramo)) {
+				escritor.escribir(producto);
+			}
+		}
+		return fichero;
+	}
+
+	/**
+	 * Mezcla (k-way merge) varios tramos ordenados, juntando las filas del mismo
+	 * producto que aparecen en distintos tramos.
+	 */
+	private static class MezclaTramos implements Iterator<Producto>, Closeable {
+		private List<LectorBinario> lectores;
+		// Lectores con fila actual, ordenados por el productoId de esa fila
+		private PriorityQueue<LectorBinario> frente;
+
+		MezclaTramos(List<Path> tramos) throws IOException {
+			this.lectores = new ArrayList<>();
+			this.frente = new PriorityQueue<>((a, b) -> a.cadena(0).compareTo(b.cadena(0)));
+			for (Path tramo : tramos) {
+				LectorBinario lector = new LectorBinario(tramo, 1);
+				lectores.add(lector);
+				if (lector.siguiente()) {
+					frente.add(lector);
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !frente.isEmpty();
+		}
+
+		@Override
+		public Producto next() {
+			if (frente.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			String productoId = frente.peek().cadena(0);
+			int cantidad = 0;
+			try {
+				while (!frente.isEmpty() && frente.peek().cadena(0).equals(productoId)) {
+					LectorBinario lector = frente.poll();
+					cantidad += lector.entero();
+					if (lector.siguiente()) {
+						frente.add(lector);
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return new Producto(productoId, cantidad);
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (LectorBinario lector : lectores) {
+				lector.close();
+			}
+		}
+	}
+
+	/**
+	 * Lee filas con numCadenas cadenas seguidas de un entero.
+	 */
+	private interface LectorFilas extends Closeable {
+		boolean siguiente() throws IOException;
+
+		String cadena(int i);
+
+		int entero();
+	}
+
+	private static class LectorCsv implements LectorFilas {
+		private BufferedReader entrada;
+		private String[] cadenas;
+		private int entero;
+		private long linea;
+
+		LectorCsv(Path fichero, int numCadenas) throws IOException {
+			this.entrada = Files.newBufferedReader(fichero, StandardCharsets.UTF_8);
+			this.cadenas = new String[numCadenas];
+			this.linea = 0;
+		}
+
+		@Override
+		public boolean siguiente() throws IOException {
+			String texto;
+			do {
+				texto = entrada.readLine();
+				linea++;
+				if (texto == null) {
+					return false;
+				}
+				texto = texto.trim();
+			} while (texto.isEmpty() || texto.startsWith("#"));
+
+			String[] campos = texto.split(",", -1);
+			if (campos.length != cadenas.length + 1) {
+				throw new IOException("Linea " + linea + ": se esperaban " + (cadenas.length + 1) + " campos");
+			}
+			for (int i = 0; i < cadenas.length; i++) {
+				cadenas[i] = campos[i].trim();
+			}
+			try {
+				entero = Integer.parseInt(campos[cadenas.length].trim());
+			} catch (NumberFormatException e) {
+				throw new IOException("Linea " + linea + ": cantidad incorrecta", e);
+			}
+			return true;
+		}
+
+		@Override
+		public String cadena(int i) {
+			return cadenas[i];
+		}
+
+		@Override
+		public int entero() {
+			return entero;
+		}
+
+		@Override
+		public void close() throws IOException {
+			entrada.close();
+		}
+	}
+
+	private static class LectorBinario implements LectorFilas {
+		private FileChannel canal;
+		private ByteBuffer buffer;
+		private String[] cadenas;
+		private int entero;
+
+		LectorBinario(Path fichero, int numCadenas) throws IOException {
+			this.canal = FileChannel.open(fichero, StandardOpenOption.READ);
+			this.buffer = ByteBuffer.allocateDirect(TAM_BUFFER);
+			this.buffer.flip(); // Vacio hasta la primera lectura
+			this.cadenas = new String[numCadenas];
+		}
+
+		@Override
+		public boolean siguiente() throws IOException {
+			if (!buffer.hasRemaining()) {
+				buffer.clear();
+				int leidos = canal.read(buffer);
+				buffer.flip();
+				if (leidos < 0) {
+					return false;
+				}
+			}
+			for (int i = 0; i < cadenas.length; i++) {
+				int longitud = asegurar(2).getShort() & 0xFFFF;
+				byte[] bytes = new byte[longitud];
+				asegurar(longitud).get(bytes);
+				cadenas[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			entero = asegurar(4).getInt();
+			return true;
+		}
+
+		// Garantiza que hay al menos n bytes sin leer en el buffer
+		private ByteBuffer asegurar(int n) throws IOException {
+			if (buffer.remaining() < n) {
+				buffer.compact();
+				while (buffer.position() < n) {
+					if (canal.read(buffer) < 0) {
+						throw new EOFException("Fila incompleta al final del fichero");
+					}
+				}
+				buffer.flip();
+			}
+			return buffer;
+		}
+
+		@Override
+		public String cadena(int i) {
+			return cadenas[i];
+		}
+
+		@Override
+		public int entero() {
+			return entero;
+		}
+
+		@Override
+		public void close() throws IOException {
+			canal.close();
+		}
+	}
+
+	private static class EscritorBinario implements Closeable {
+		private FileChannel canal;
+		private ByteBuffer buffer;
+
+		EscritorBinario(Path fichero) throws IOException {
+			this.canal = FileChannel.open(fichero, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			this.buffer = ByteBuffer.allocateDirect(TAM_BUFFER);
+		}
+
+		void escribir(Producto producto) throws IOException {
+			byte[] bytes = producto.getProductoId().getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > 0xFFFF) {
+				throw new IOException("productoId demasiado largo: " + bytes.length + " bytes");
+			}
+			if (buffer.remaining() < 2 + bytes.length + 4) {
+				vaciar();
+			}
+			buffer.putShort((short) bytes.length);
+			buffer.put(bytes);
+			buffer.putInt(producto.getCantidadDisponible());
+		}
+
+		private void vaciar() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				canal.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				vaciar();
+			} finally {
+				canal.close();
+			}
+		}
+	}
+
+}
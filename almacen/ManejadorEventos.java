@@ -0,0 +1,14 @@
+package aed.almacen;
+
+/**
+ * Metodo que llama un ConsumidorCambios por cada evento leido.
+ */
+public interface ManejadorEventos {
+
+  /**
+   * Procesa un evento. finDeLote es true en el ultimo evento de cada lote,
+   * por ejemplo para hacer un flush de lo acumulado.
+   */
+  public void evento(EventoAlmacen evento, boolean finDeLote);
+
+}
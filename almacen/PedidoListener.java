@@ -0,0 +1,29 @@
+package aed.almacen;
+
+/**
+ * Metodos que se llaman con el resultado de un pedido que no se ha podido
+ * servir en el momento: si queda pendiente, si se rechaza, y cuando un pedido
+ * pendiente se sirve al reabastecer el producto.
+ */
+public interface PedidoListener {
+
+  /**
+   * El pedido se ha servido y se ha registrado como la compra compraId.
+   */
+  public void pedidoServido(PedidoPendiente pedido, Integer compraId);
+
+  /**
+   * El pedido no se ha podido servir y ha quedado pendiente (modo reserva).
+   * Se llama antes de que pedir devuelva null.
+   */
+  public default void pedidoPendiente(PedidoPendiente pedido) {
+  }
+
+  /**
+   * El pedido no se ha podido servir y se ha descartado. Se llama antes de
+   * que pedir devuelva null.
+   */
+  public default void pedidoRechazado(String clienteId, String productoId, int cantidad) {
+  }
+
+}
@@ -0,0 +1,61 @@
+package aed.almacen;
+
+/**
+ * Guarda informacion sobre un pedido que no se pudo servir por falta de
+ * articulos y que espera a que se reabastezca el producto.
+ */
+public class PedidoPendiente {
+
+  // La identidad del cliente (comprador).
+  private String clienteId;
+  // La identidad del producto pedido.
+  private String productoId;
+  // La cantidad de productos pedidos.
+  private int cantidad;
+  // A quien avisar cuando se sirva el pedido (puede ser null).
+  private PedidoListener listener;
+
+  /**
+   * Constructor para USO INTERNO solo.
+   */
+  PedidoPendiente(String clienteId, String productoId, int cantidad, PedidoListener listener) {
+    this.clienteId = clienteId;
+    this.productoId = productoId;
+    this.cantidad = cantidad;
+    this.listener = listener;
+  }
+
+  /**
+   * Devuelve la identidad del comprador (cliente).
+   */
+  public String getClienteId() {
+    return clienteId;
+  }
+
+  /**
+   * Devuelve la identidad del producto pedido.
+   */
+  public String getProductoId() {
+    return productoId;
+  }
+
+  /**
+   * Devuelve la cantidad de productos pedidos.
+   */
+  public int getCantidad() {
+    return cantidad;
+  }
+
+  /**
+   * Devuelve el listener que se avisa cuando se sirve el pedido.
+   */
+  PedidoListener getListener() {
+    return listener;
+  }
+
+  @Override
+  public String toString() {
+    return "PedidoPendiente("+clienteId+","+productoId+","+cantidad+")";
+  }
+
+}
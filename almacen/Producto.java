@@ -35,9 +35,11 @@ public class Producto implements Comparable<Producto> {
   }
 
   /**
-   * Cambia el numero de productos disponible en el almacen.
+   * Cambia el numero de productos disponible en el almacen. Para USO INTERNO
+   * solo: el Almacen indexa sus productos por cantidad, asi que la cantidad de
+   * un producto del almacen solo se cambia a traves del propio Almacen.
    */
-  public void setCantidadDisponible(int cantidad) {
+  void setCantidadDisponible(int cantidad) {
     this.cantidadDisponible = cantidad;
   }
 
@@ -0,0 +1,153 @@
+package aed.almacen;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+import es.upm.aedlib.Pair;
+import es.upm.aedlib.indexedlist.ArrayIndexedList;
+import es.upm.aedlib.indexedlist.IndexedList;
+
+/**
+ * Mantiene de forma incremental los K identificadores (productos o clientes)
+ * con mas unidades compradas.
+ *
+ * Sin ventana, los totales solo crecen, asi que basta con guardar en el
+ * conjunto ordenado los K mejores: un identificador que esta fuera del top
+ * solo puede entrar cuando se actualiza su propio total, y en ese momento se
+ * compara con el peor del top. Cada actualizacion cuesta O(log K).
+ *
+ * Con ventana (las ultimas N compras) los totales tambien bajan cuando una
+ * compra sale de la ventana, por lo que se ordenan todos los identificadores
+ * presentes en la ventana y cada actualizacion cuesta O(log N).
+ *
+ * Las cantidades tienen que ser positivas: si no, un total podria bajar sin
+ * ventana, y con ventana podria llegar a 0 mientras quedan compras suyas en
+ * la ventana.
+ */
+class RankingVentas {
+
+	// Total acumulado de un identificador
+	private static class Puntuacion {
+		private final String id;
+		private long total;
+
+		Puntuacion(String id) {
+			this.id = id;
+			this.total = 0;
+		}
+	}
+
+	// Una compra dentro de la ventana. Guarda el identificador y no la
+	// Puntuacion, que se quita de totales cuando su total llega a 0
+	private static class Venta {
+		private final String id;
+		private final int cantidad;
+
+		Venta(String id, int cantidad) {
+			this.id = id;
+			this.cantidad = cantidad;
+		}
+	}
+
+	// Mayor total primero; en caso de empate, menor identificador primero
+	private static final Comparator<Puntuacion> ORDEN = new Comparator<Puntuacion>() {
+		@Override
+		public int compare(Puntuacion a, Puntuacion b) {
+			int comparacion = Long.compare(b.total, a.total);
+			return comparacion != 0 ? comparacion : a.id.compareTo(b.id);
+		}
+	};
+
+	private final int k;
+	private final int ventana;
+	private final HashMap<String, Puntuacion> totales;
+	private final TreeSet<Puntuacion> ordenados;
+	private final ArrayDeque<Venta> ultimas;
+
+	/**
+	 * Crea un ranking.
+	 *
+	 * @param k       El numero de identificadores del top
+	 * @param ventana El numero de compras recientes que se tienen en cuenta, o 0
+	 *                para tener en cuenta todas
+	 */
+	RankingVentas(int k, int ventana) {
+		if (k <= 0 || ventana < 0) {
+			throw new IllegalArgumentException("k=" + k + ", ventana=" + ventana);
+		}
+		this.k = k;
+		this.ventana = ventana;
+		this.totales = new HashMap<>();
+		this.ordenados = new TreeSet<>(ORDEN);
+		this.ultimas = new ArrayDeque<>();
+	}
+
+	/**
+	 * Suma cantidad unidades compradas al identificador id.
+	 *
+	 * @throws IllegalArgumentException si cantidad no es positiva
+	 */
+	void sumar(String id, int cantidad) {
+		if (cantidad <= 0) {
+			throw new IllegalArgumentException("cantidad=" + cantidad);
+		}
+		Puntuacion puntuacion = totales.get(id);
+		if (puntuacion == null) {
+			puntuacion = new Puntuacion(id);
+			totales.put(id, puntuacion);
+		}
+
+		if (ventana == 0) {
+			sumarSinVentana(puntuacion, cantidad);
+		} else {
+			cambiarTotal(puntuacion, cantidad);
+			ultimas.addLast(new Venta(id, cantidad));
+			if (ultimas.size() > ventana) {
+				// Su total incluye la venta antigua, asi que sigue en totales
+				Venta antigua = ultimas.removeFirst();
+				cambiarTotal(totales.get(antigua.id), -antigua.cantidad);
+			}
+		}
+	}
+
+	/**
+	 * Devuelve los (como mucho) K identificadores con mas unidades, de mayor a
+	 * menor total, junto con su total. Cuesta O(K).
+	 */
+	IndexedList<Pair<String, Long>> top() {
+		IndexedList<Pair<String, Long>> resultado = new ArrayIndexedList<>();
+		Iterator<Puntuacion> it = ordenados.iterator();
+		while (it.hasNext() && resultado.size() < k) {
+			Puntuacion puntuacion = it.next();
+			resultado.add(resultado.size(), new Pair<>(puntuacion.id, puntuacion.total));
+		}
+		return resultado;
+	}
+
+	private void sumarSinVentana(Puntuacion puntuacion, int cantidad) {
+		// Se saca antes de cambiar la clave de ordenacion
+		boolean estaba = ordenados.remove(puntuacion);
+		puntuacion.total += cantidad;
+
+		if (estaba || ordenados.size() < k) {
+			ordenados.add(puntuacion);
+		} else if (ORDEN.compare(puntuacion, ordenados.last()) < 0) {
+			// Supera al peor del top: entra y el peor sale
+			ordenados.pollLast();
+			ordenados.add(puntuacion);
+		}
+	}
+
+	private void cambiarTotal(Puntuacion puntuacion, int cantidad) {
+		ordenados.remove(puntuacion);
+		puntuacion.total += cantidad;
+		if (puntuacion.total > 0) {
+			ordenados.add(puntuacion);
+		} else {
+			totales.remove(puntuacion.id);
+		}
+	}
+
+}
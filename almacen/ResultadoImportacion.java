@@ -0,0 +1,58 @@
+package aed.almacen;
+
+/**
+ * Guarda el resultado de una importacion masiva: filas leidas y tiempo.
+ */
+public class ResultadoImportacion {
+
+  // Numero de filas leidas del fichero.
+  private long filas;
+  // Numero de tramos ordenados que se volcaron a disco.
+  private int tramos;
+  // Tiempo total de la importacion en nanosegundos.
+  private long nanos;
+
+  /**
+   * Constructor para USO INTERNO solo.
+   */
+  ResultadoImportacion(long filas, int tramos, long nanos) {
+    this.filas = filas;
+    this.tramos = tramos;
+    this.nanos = nanos;
+  }
+
+  /**
+   * Devuelve el numero de filas leidas.
+   */
+  public long getFilas() {
+    return filas;
+  }
+
+  /**
+   * Devuelve el numero de tramos ordenados volcados a disco
+   * (0 si todas las filas cabian en un tramo en memoria).
+   */
+  public int getTramos() {
+    return tramos;
+  }
+
+  /**
+   * Devuelve el tiempo de la importacion en nanosegundos.
+   */
+  public long getNanos() {
+    return nanos;
+  }
+
+  /**
+   * Devuelve el rendimiento de la importacion en filas por segundo.
+   */
+  public double filasPorSegundo() {
+    return nanos == 0 ? 0 : filas * 1e9 / nanos;
+  }
+
+  @Override
+  public String toString() {
+    return "ResultadoImportacion("+filas+" filas,"+tramos+" tramos,"+String.format("%.0f", filasPorSegundo())+" filas/s)";
+  }
+
+}
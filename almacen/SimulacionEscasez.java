@@ -0,0 +1,136 @@
+package aed.almacen;
+
+import java.util.Random;
+
+/**
+ * Simula una escasez para comparar los clientes que reintentan en un bucle
+ * (modo reserva desactivado) con los que dejan el pedido pendiente (modo
+ * reserva activado).
+ *
+ * Hay CLIENTES clientes que quieren hacer PEDIDOS_POR_CLIENTE pedidos cada uno
+ * de entre 1 y 5 unidades de uno de PRODUCTOS productos, y cada
+ * TURNOS_ENTRE_REABASTECIMIENTOS turnos el proveedor trae UNIDADES_POR_REPOSICION
+ * unidades de cada producto, menos de lo que se pide. En cada turno:
+ * <ul>
+ * <li>sin modo reserva, cada cliente que espera mira el producto con
+ * getProducto y, si parece que hay bastante, llama a pedir;</li>
+ * <li>con modo reserva, el cliente llama a pedir una sola vez con un
+ * PedidoListener y no hace nada mas hasta que le avisan de que se ha
+ * servido.</li>
+ * </ul>
+ * main escribe, para cada modo, las llamadas a getProducto y pedir, los
+ * pedidos servidos, los turnos que ha durado y los pedidos servidos por
+ * segundo (la mejor de varias ejecuciones).
+ */
+public class SimulacionEscasez {
+
+	private static final int PRODUCTOS = 100;
+	private static final int CLIENTES = 1000;
+	private static final int PEDIDOS_POR_CLIENTE = 20;
+	private static final int TURNOS_ENTRE_REABASTECIMIENTOS = 100;
+	private static final int UNIDADES_POR_REPOSICION = 50;
+	private static final int EJECUCIONES = 5;
+
+	// Lo que un cliente esta pidiendo y si le falta que se lo sirvan
+	private static class Cliente implements PedidoListener {
+		private final String clienteId;
+		private int pedidosHechos;
+		private String productoId;
+		private int cantidad;
+		private boolean esperando;
+
+		Cliente(String clienteId) {
+			this.clienteId = clienteId;
+		}
+
+		@Override
+		public void pedidoServido(PedidoPendiente pedido, Integer compraId) {
+			esperando = false;
+			pedidosHechos++;
+		}
+	}
+
+	// Resultado de una ejecucion
+	private static class Resultado {
+		long llamadas;
+		long turnos;
+		long nanos;
+	}
+
+	public static void main(String[] args) {
+		for (boolean modoReserva : new boolean[] { false, true }) {
+			Resultado mejor = null;
+			for (int i = 0; i < EJECUCIONES; i++) {
+				Resultado resultado = simular(modoReserva);
+				if (mejor == null || resultado.nanos < mejor.nanos) {
+					mejor = resultado;
+				}
+			}
+			int servidos = CLIENTES * PEDIDOS_POR_CLIENTE;
+			System.out.printf("%-22s %9d llamadas (%6.1f por pedido), %d pedidos servidos en %d turnos, "
+					+ "%.1f ms, %.0f pedidos/s%n", modoReserva ? "modo reserva" : "reintentos", mejor.llamadas,
+					(double) mejor.llamadas / servidos, servidos, mejor.turnos, mejor.nanos / 1e6,
+					servidos * 1e9 / mejor.nanos);
+		}
+	}
+
+	private static Resultado simular(boolean modoReserva) {
+		Random aleatorio = new Random(1);
+		Almacen almacen = new Almacen();
+		almacen.setModoReserva(modoReserva);
+		for (int p = 0; p < PRODUCTOS; p++) {
+			almacen.reabastecerProducto("p" + p, UNIDADES_POR_REPOSICION);
+		}
+		Cliente[] clientes = new Cliente[CLIENTES];
+		for (int c = 0; c < CLIENTES; c++) {
+			clientes[c] = new Cliente("c" + c);
+		}
+
+		Resultado resultado = new Resultado();
+		int pendientes = CLIENTES;
+		long inicio = System.nanoTime();
+		while (pendientes > 0) {
+			resultado.turnos++;
+			if (resultado.turnos % TURNOS_ENTRE_REABASTECIMIENTOS == 0) {
+				for (int p = 0; p < PRODUCTOS; p++) {
+					almacen.reabastecerProducto("p" + p, UNIDADES_POR_REPOSICION);
+				}
+			}
+			pendientes = 0;
+			for (Cliente cliente : clientes) {
+				if (cliente.pedidosHechos == PEDIDOS_POR_CLIENTE) {
+					continue;
+				}
+				pendientes++;
+				if (!cliente.esperando) {
+					// Pedido nuevo
+					cliente.productoId = "p" + aleatorio.nextInt(PRODUCTOS);
+					cliente.cantidad = 1 + aleatorio.nextInt(5);
+					resultado.llamadas++;
+					if (almacen.pedir(cliente.clienteId, cliente.productoId, cliente.cantidad, cliente) != null) {
+						cliente.pedidosHechos++;
+					} else {
+						cliente.esperando = true;
+					}
+				} else if (!modoReserva) {
+					// Reintento: se mira el stock y se pide si parece que hay bastante
+					resultado.llamadas++;
+					if (almacen.getProducto(cliente.productoId).getCantidadDisponible() >= cliente.cantidad) {
+						resultado.llamadas++;
+						if (almacen.pedir(cliente.clienteId, cliente.productoId, cliente.cantidad) != null) {
+							cliente.esperando = false;
+							cliente.pedidosHechos++;
+						}
+					}
+				}
+			}
+		}
+		resultado.nanos = System.nanoTime() - inicio;
+
+		if (almacen.getCompras().size() != CLIENTES * PEDIDOS_POR_CLIENTE) {
+			throw new IllegalStateException(
+					almacen.getCompras().size() + " compras, se esperaban " + CLIENTES * PEDIDOS_POR_CLIENTE);
+		}
+		return resultado;
+	}
+}
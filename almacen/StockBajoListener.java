@@ -0,0 +1,21 @@
+package aed.almacen;
+
+/**
+ * Metodos que se llaman cuando la cantidad disponible de un producto cruza el
+ * umbral de stock bajo configurado en el almacen.
+ */
+public interface StockBajoListener {
+
+  /**
+   * La cantidad disponible del producto ha bajado por debajo del umbral
+   * (o el producto se ha dado de alta ya por debajo del umbral).
+   */
+  public void stockBajo(Producto producto, int umbral);
+
+  /**
+   * La cantidad disponible del producto ha vuelto a ser mayor o igual que
+   * el umbral.
+   */
+  public void stockRecuperado(Producto producto, int umbral);
+
+}
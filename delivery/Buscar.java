@@ -2,9 +2,12 @@ package aed.delivery;
 
 import es.upm.aedlib.Pair;
 import es.upm.aedlib.positionlist.*;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
- * Clase Buscar para navegar el laberinto.
+ * Clase Buscar para navegar el laberinto. Los algoritmos trabajan sobre
+ * cualquier Rejilla, como Laberinto o LaberintoCompacto.
  */
 public class Buscar {
 
@@ -14,13 +17,13 @@ public class Buscar {
      * @param laberinto El laberinto donde se buscará el regalo.
      * @return Un par (Pair) que contiene el regalo y el camino hacia él.
      */
-    public static Pair<String, PositionList<Direccion>> busca(Laberinto laberinto) {
+    public static Pair<String, PositionList<Direccion>> busca(Rejilla laberinto) {
         // Inicializa la lista para almacenar el camino
         PositionList<Direccion> path = new NodePositionList<>();
 
         // Inicia la búsqueda recursiva
         if (dfs(laberinto, path)) {
-            return new Pair<>(laberinto.getRegalo(), path);
+            return new Pair<>(laberinto.getRegalo(laberinto.getCelda()), path);
         }
 
         // Si no se encuentra un camino, retorna null
@@ -28,41 +31,141 @@ public class Buscar {
     }
 
     /**
-     * Método auxiliar recursivo para la búsqueda en profundidad (DFS).
+     * Encuentra el camino más corto desde el punto actual hasta el regalo más
+     * cercano, con una búsqueda en anchura (BFS).
+     *
+     * A diferencia de busca, no mueve al repartidor ni marca el suelo con
+     * tiza: los puntos visitados se guardan en un BitSet aparte, indexado por
+     * y * ancho + x, así que el laberinto queda igual que estaba.
+     *
+     * @param laberinto El laberinto donde se buscará el regalo.
+     * @return Un par (Pair) que contiene el regalo y el camino más corto hacia
+     *         él, o null si no se puede llegar a ningún regalo.
+     */
+    public static Pair<String, PositionList<Direccion>> buscaMasCorto(Rejilla laberinto) {
+        int ancho = laberinto.getAncho();
+        int numPuntos = ancho * laberinto.getAlto();
+        Direccion[] direcciones = Direccion.values();
+
+        BitSet visitados = new BitSet(numPuntos);
+        // Dirección por la que se llegó a cada punto visitado
+        byte[] llegada = new byte[numPuntos];
+        // Cola de índices de puntos; cada punto entra como mucho una vez
+        int[] cola = new int[numPuntos];
+        int cabeza = 0;
+        int fin = 0;
+
+        int indiceOrigen = laberinto.getCelda();
+        visitados.set(indiceOrigen);
+        cola[fin++] = indiceOrigen;
+
+        while (cabeza < fin) {
+            int indice = cola[cabeza++];
+            String regalo = laberinto.getRegalo(indice);
+            if (regalo != null) {
+                return new Pair<>(regalo, camino(ancho, llegada, indice, indiceOrigen));
+            }
+            for (Direccion dir : direcciones) {
+                int indiceVecino = laberinto.vecina(indice, dir);
+                if (indiceVecino >= 0) {
+                    if (!visitados.get(indiceVecino)) {
+                        visitados.set(indiceVecino);
+                        llegada[indiceVecino] = (byte) dir.ordinal();
+                        cola[fin++] = indiceVecino;
+                    }
+                }
+            }
+        }
+
+        // Si no se encuentra un camino, retorna null
+        return null;
+    }
+
+    /**
+     * Reconstruye el camino desde el origen hasta el punto indice siguiendo
+     * hacia atrás las direcciones de llegada.
+     */
+    private static PositionList<Direccion> camino(int ancho, byte[] llegada, int indice, int indiceOrigen) {
+        Direccion[] direcciones = Direccion.values();
+        PositionList<Direccion> path = new NodePositionList<>();
+        while (indice != indiceOrigen) {
+            Direccion dir = direcciones[llegada[indice]];
+            path.addFirst(dir);
+            // Un paso hacia atrás: el punto desde el que se movió hacia dir
+            switch (dir) {
+                case NORTE: indice -= ancho; break;
+                case SUR: indice += ancho; break;
+                case ESTE: indice -= 1; break;
+                case OESTE: indice += 1; break;
+                default: throw new IllegalArgumentException("Dirección inválida: " + dir);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Método auxiliar para la búsqueda en profundidad (DFS).
+     *
+     * Recorre el laberinto en el mismo orden que la versión recursiva, pero con
+     * una pila explícita: para cada nivel del camino se guarda el índice de la
+     * siguiente dirección a probar. Así la profundidad no depende de la pila de
+     * llamadas de Java y un pasillo largo no provoca StackOverflowError; la
+     * memoria extra es un int por paso del camino actual.
      *
      * @param laberinto El laberinto en el que se busca.
      * @param path El camino actual hasta el punto explorado.
      * @return True si se encuentra un regalo; false en caso contrario.
      */
-    private static boolean dfs(Laberinto laberinto, PositionList<Direccion> path) {
-        // Caso base: Si el punto actual tiene un regalo, retorna true
-        if (laberinto.tieneRegalo()) {
+    private static boolean dfs(Rejilla laberinto, PositionList<Direccion> path) {
+        Direccion[] direcciones = Direccion.values();
+        // siguiente[d] es la siguiente dirección a probar en el nivel d del camino
+        int[] siguiente = new int[16];
+        int nivel = 0;
+
+        // Caso base: Si el punto inicial tiene un regalo, retorna true
+        int celda = laberinto.getCelda();
+        if (laberinto.getRegalo(celda) != null) {
             return true;
         }
+        laberinto.marcaSueloConTiza(celda);
 
-        // Marca el punto actual para evitar visitarlo nuevamente
-        laberinto.marcaSueloConTiza();
+        while (true) {
+            if (siguiente[nivel] == direcciones.length) {
+                // Se han probado todas las direcciones desde este punto
+                if (nivel == 0) {
+                    return false; // No se encontró un regalo
+                }
+                // Retrocede: elimina la última dirección y vuelve al punto anterior
+                Direccion dir = path.remove(path.last());
+                laberinto.moverHacia(oppositeDirection(dir));
+                celda = laberinto.getCelda();
+                nivel--;
+                continue;
+            }
 
-        // Explora todas las direcciones posibles desde el punto actual
-        for (Direccion dir : laberinto.direccionesPosibles()) {
+            Direccion dir = direcciones[siguiente[nivel]++];
             // Comprueba si la dirección conduce a un punto no visitado
-            if (!laberinto.canGo(dir).sueloMarcadoConTiza) {
-                // Mueve hacia la dirección
-                laberinto.moverHacia(dir);
-                path.addLast(dir);
-
-                // Realiza una llamada recursiva desde la nueva posición
-                if (dfs(laberinto, path)) {
-                    return true; // Si se encuentra un regalo, finaliza la búsqueda
-                }
+            int nueva = laberinto.vecina(celda, dir);
+            if (nueva < 0 || laberinto.sueloMarcadoConTiza(nueva)) {
+                continue;
+            }
 
-                // Retrocede si no se encuentra un regalo en esta dirección
-                path.remove(path.last()); // Elimina la última dirección del camino
-                laberinto.moverHacia(oppositeDirection(dir)); // Vuelve al punto anterior
+            // Mueve hacia la dirección
+            laberinto.moverHacia(dir);
+            path.addLast(dir);
+            celda = nueva;
+            if (laberinto.getRegalo(celda) != null) {
+                return true; // Si se encuentra un regalo, finaliza la búsqueda
             }
-        }
 
-        return false; // No se encontró un regalo desde este punto
+            // Marca el punto nuevo y empieza a explorarlo en el siguiente nivel
+            laberinto.marcaSueloConTiza(celda);
+            nivel++;
+            if (nivel == siguiente.length) {
+                siguiente = Arrays.copyOf(siguiente, 2 * siguiente.length);
+            }
+            siguiente[nivel] = 0;
+        }
     }
 
     /**
@@ -0,0 +1,111 @@
+/**
+ * Generates mazes of any size to try the searches in Buscar on them.
+ */
+package aed.delivery;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Every generator returns a LaberintoCompacto with the courier at (0,0) and
+ * no chalk marks. The same arguments always give the same maze.
+ */
+public class GeneradorLaberintos {
+  private static final Direccion[] DIRECCIONES = Direccion.values();
+
+  /**
+   * Returns a perfect maze, with exactly one path between any two cells,
+   * carved by a randomized depth-first search. Its corridors are long and
+   * winding, which is the hard case for Buscar.busca. There is one gift, at
+   * a random cell, so every search must return the same path to it.
+   */
+  public static LaberintoCompacto perfecto(int ancho, int alto, long semilla) {
+    LaberintoCompacto laberinto = new LaberintoCompacto(ancho, alto);
+    Random aleatorio = new Random(semilla);
+    int n = ancho * alto;
+    BitSet visitadas = new BitSet(n);
+    // Cells of the current carving path; it never holds more than n
+    int[] pila = new int[n];
+    int cima = 0;
+    pila[cima++] = 0;
+    visitadas.set(0);
+    Direccion[] posibles = new Direccion[DIRECCIONES.length];
+    while (cima > 0) {
+      int c = pila[cima-1];
+      int k = 0;
+      for (Direccion pc : DIRECCIONES) {
+        int v = vecina(ancho, alto, c, pc);
+        if (v >= 0 && !visitadas.get(v)) posibles[k++] = pc;
+      }
+      if (k == 0) {
+        cima--;
+        continue;
+      }
+      Direccion pc = posibles[aleatorio.nextInt(k)];
+      int v = vecina(ancho, alto, c, pc);
+      abrir(laberinto, ancho, c, pc);
+      visitadas.set(v);
+      pila[cima++] = v;
+    }
+    int regalo = aleatorio.nextInt(n);
+    laberinto.setRegalo(regalo % ancho, regalo / ancho, "regalo");
+    return laberinto;
+  }
+
+  /**
+   * Returns a maze made of a single corridor that snakes row by row through
+   * every cell, with the gift at its far end. Buscar.busca has to go
+   * ancho*alto-1 steps deep to reach it.
+   */
+  public static LaberintoCompacto serpiente(int ancho, int alto) {
+    LaberintoCompacto laberinto = new LaberintoCompacto(ancho, alto);
+    int ultima = 0;
+    for (int y = 0; y < alto; y++) {
+      Direccion avance = y % 2 == 0 ? Direccion.ESTE : Direccion.OESTE;
+      int c = y * ancho + (y % 2 == 0 ? 0 : ancho-1);
+      for (int i = 1; i < ancho; i++) {
+        abrir(laberinto, ancho, c, avance);
+        c = vecina(ancho, alto, c, avance);
+      }
+      if (y+1 < alto) abrir(laberinto, ancho, c, Direccion.NORTE);
+      ultima = c;
+    }
+    laberinto.setRegalo(ultima % ancho, ultima / ancho, "regalo");
+    return laberinto;
+  }
+
+  /**
+   * Opens numHuecos walls chosen at random (some may already be open), so
+   * that there are loops and several paths to the gifts.
+   */
+  public static void abrirHuecos(LaberintoCompacto laberinto, int numHuecos, long semilla) {
+    int ancho = laberinto.getAncho();
+    int alto = laberinto.getAlto();
+    Random aleatorio = new Random(semilla);
+    for (int i = 0; i < numHuecos; i++) {
+      int c = aleatorio.nextInt(ancho * alto);
+      Direccion pc = DIRECCIONES[aleatorio.nextInt(DIRECCIONES.length)];
+      if (vecina(ancho, alto, c, pc) >= 0) abrir(laberinto, ancho, c, pc);
+    }
+  }
+
+  // Opens the way between c and its neighbour towards pc, on both sides
+  private static void abrir(LaberintoCompacto laberinto, int ancho, int c, Direccion pc) {
+    int v = vecina(ancho, laberinto.getAlto(), c, pc);
+    laberinto.setAccessible(c % ancho, c / ancho, pc, true);
+    laberinto.setAccessible(v % ancho, v / ancho, Direccion.opuesto(pc), true);
+  }
+
+  // The cell next to c towards pc, ignoring walls, or -1 outside the maze
+  private static int vecina(int ancho, int alto, int c, Direccion pc) {
+    int x = c % ancho;
+    int y = c / ancho;
+    switch (pc) {
+    case NORTE: return y+1 < alto ? c+ancho : -1;
+    case SUR: return y > 0 ? c-ancho : -1;
+    case ESTE: return x+1 < ancho ? c+1 : -1;
+    case OESTE: return x > 0 ? c-1 : -1;
+    default: throw new IllegalArgumentException("invalid direction "+pc);
+    }
+  }
+}
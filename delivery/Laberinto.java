@@ -2,7 +2,7 @@ package aed.delivery;
 
 import es.upm.aedlib.positionlist.*;
 
-public class Laberinto {
+public class Laberinto implements Rejilla {
   Punto[][] puntos;
   int maxY;
   int maxX;
@@ -63,6 +63,39 @@ public class Laberinto {
   public void marcaSueloConTiza() {
     punto.sueloMarcadoConTiza = true;
   }
+
+  public int getAncho() {
+    return maxX+1;
+  }
+
+  public int getAlto() {
+    return maxY+1;
+  }
+
+  public int getCelda() {
+    return punto.y*(maxX+1)+punto.x;
+  }
+
+  public int vecina(int celda, Direccion pc) {
+    Punto nuevo = vecino(puntoEn(celda), pc);
+    return nuevo == null ? -1 : nuevo.y*(maxX+1)+nuevo.x;
+  }
+
+  public String getRegalo(int celda) {
+    return puntoEn(celda).regalo;
+  }
+
+  public boolean sueloMarcadoConTiza(int celda) {
+    return puntoEn(celda).sueloMarcadoConTiza;
+  }
+
+  public void marcaSueloConTiza(int celda) {
+    puntoEn(celda).sueloMarcadoConTiza = true;
+  }
+
+  Punto puntoEn(int celda) {
+    return puntos[celda/(maxX+1)][celda%(maxX+1)];
+  }
   
   public void moverHacia(Direccion pc) {
     /* We have to check that the punto is accessible from the current Punto */
@@ -81,8 +114,16 @@ public class Laberinto {
   
 
   Punto canGo(Direccion pc) {
-    int x = punto.x;
-    int y = punto.y;
+    return vecino(punto, pc);
+  }
+
+  /**
+   * Returns the punto reached from p moving towards pc, or null if there is
+   * no path. Unlike canGo it does not depend on the current punto.
+   */
+  Punto vecino(Punto p, Direccion pc) {
+    int x = p.x;
+    int y = p.y;
     int nuevoY = y;
     int nuevoX = x;
     boolean enabled;
@@ -0,0 +1,264 @@
+/**
+ * A LaberintoCompacto is a maze stored as one byte per cell instead of one
+ * Punto object per cell.
+ */
+package aed.delivery;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Each cell is a byte: bits 0 to 3 tell whether the courier can go NORTE,
+ * SUR, ESTE and OESTE, and bit 4 is the chalk mark. The bytes live in a
+ * ByteBuffer, either on the heap or mapped from a file, and the gifts, which
+ * are few, in a map from cell number to gift. Cells are numbered y*ancho+x,
+ * as in Rejilla, so Buscar runs on it directly.
+ *
+ * File format (big-endian): ancho and alto as ints, ancho*alto cell bytes,
+ * the number of gifts as an int, and for each gift its cell as an int and
+ * its name as an int with the UTF-8 length followed by the bytes.
+ */
+public class LaberintoCompacto implements Rejilla {
+  private static final int TIZA = 1 << 4;
+  private static final int CABECERA = 2 * Integer.BYTES;
+
+  private final int ancho;
+  private final int alto;
+  private final ByteBuffer celdas;
+  private final Map<Integer,String> regalos;
+  private int celda;
+
+  /**
+   * Creates a maze of ancho x alto cells with every wall closed, no gifts
+   * and the courier at (0,0).
+   */
+  public LaberintoCompacto(int ancho, int alto) {
+    this(ancho, alto, ByteBuffer.allocate(numCeldas(ancho, alto)), new HashMap<>());
+  }
+
+  /**
+   * Creates a compact copy of laberinto, with the same walls, gifts, chalk
+   * marks and courier position.
+   */
+  public LaberintoCompacto(Laberinto laberinto) {
+    this(laberinto.getAncho(), laberinto.getAlto());
+    for (int c = 0; c < ancho*alto; c++) {
+      Punto p = laberinto.puntoEn(c);
+      int bits = 0;
+      for (Direccion pc : Direccion.values())
+        if (p.accessible(pc)) bits |= bit(pc);
+      if (p.sueloMarcadoConTiza) bits |= TIZA;
+      celdas.put(c, (byte) bits);
+      if (p.regalo != null) regalos.put(c, p.regalo);
+    }
+    this.celda = laberinto.getCelda();
+  }
+
+  private LaberintoCompacto(int ancho, int alto, ByteBuffer celdas, Map<Integer,String> regalos) {
+    this.ancho = ancho;
+    this.alto = alto;
+    this.celdas = celdas;
+    this.regalos = regalos;
+    this.celda = 0;
+  }
+
+  /**
+   * Loads a maze saved with guardar, mapping the cells from the file instead
+   * of reading them into the heap. The mapping is private (copy-on-write):
+   * chalk marks and wall changes are not written back to the file. Java can
+   * only map a file that way if it is writable, so a read-only file is read
+   * into a heap buffer instead.
+   * @throws IOException if the file cannot be read or is not a valid maze
+   * file (for example, if it is truncated).
+   */
+  public static LaberintoCompacto cargar(Path fichero) throws IOException {
+    boolean proyectar = Files.isWritable(fichero);
+    try (FileChannel canal = proyectar
+           ? FileChannel.open(fichero, StandardOpenOption.READ, StandardOpenOption.WRITE)
+           : FileChannel.open(fichero, StandardOpenOption.READ)) {
+      if (canal.size() < CABECERA) throw new IOException("corrupt maze file: no header");
+      ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+      leer(canal, cabecera, 0);
+      int ancho = cabecera.getInt(0);
+      int alto = cabecera.getInt(Integer.BYTES);
+      int n;
+      try {
+        n = numCeldas(ancho, alto);
+      } catch (IllegalArgumentException e) {
+        throw new IOException("corrupt maze file", e);
+      }
+      // Header, cells and the number of gifts
+      long posicion = CABECERA + (long) n;
+      if (canal.size() < posicion + Integer.BYTES || canal.size() - posicion > Integer.MAX_VALUE)
+        throw new IOException("corrupt maze file: size "+canal.size()+" does not match "+ancho+"x"+alto);
+      ByteBuffer celdas;
+      if (proyectar) {
+        // The mapping stays valid after the channel is closed
+        celdas = canal.map(FileChannel.MapMode.PRIVATE, CABECERA, n);
+      } else {
+        celdas = ByteBuffer.allocate(n);
+        leer(canal, celdas, CABECERA);
+        celdas.clear();
+      }
+
+      ByteBuffer resto = ByteBuffer.allocate((int) (canal.size() - posicion));
+      leer(canal, resto, posicion);
+      resto.flip();
+      Map<Integer,String> regalos = new HashMap<>();
+      try {
+        int numRegalos = resto.getInt();
+        for (int i = 0; i < numRegalos; i++) {
+          int c = resto.getInt();
+          int longitud = resto.getInt();
+          if (c < 0 || c >= n || longitud < 0 || longitud > resto.remaining())
+            throw new IOException("corrupt maze file: bad gift entry");
+          byte[] bytes = new byte[longitud];
+          resto.get(bytes);
+          regalos.put(c, new String(bytes, StandardCharsets.UTF_8));
+        }
+      } catch (BufferUnderflowException e) {
+        throw new IOException("corrupt maze file", e);
+      }
+      return new LaberintoCompacto(ancho, alto, celdas, regalos);
+    }
+  }
+
+  /**
+   * Saves the maze (walls, chalk marks and gifts) in fichero, in the format
+   * read by cargar.
+   */
+  public void guardar(Path fichero) throws IOException {
+    try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                              StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+      cabecera.putInt(ancho).putInt(alto).flip();
+      escribir(canal, cabecera);
+      ByteBuffer todas = celdas.duplicate();
+      todas.clear();
+      escribir(canal, todas);
+
+      int tam = Integer.BYTES;
+      for (String regalo : regalos.values())
+        tam += 2 * Integer.BYTES + regalo.getBytes(StandardCharsets.UTF_8).length;
+      ByteBuffer resto = ByteBuffer.allocate(tam);
+      resto.putInt(regalos.size());
+      for (Map.Entry<Integer,String> e : regalos.entrySet()) {
+        byte[] bytes = e.getValue().getBytes(StandardCharsets.UTF_8);
+        resto.putInt(e.getKey()).putInt(bytes.length).put(bytes);
+      }
+      resto.flip();
+      escribir(canal, resto);
+    }
+  }
+
+  public int getAncho() {
+    return ancho;
+  }
+
+  public int getAlto() {
+    return alto;
+  }
+
+  public int getCelda() {
+    return celda;
+  }
+
+  public int vecina(int celda, Direccion pc) {
+    if ((celdas.get(celda) & bit(pc)) == 0) return -1;
+    int x = celda % ancho;
+    int y = celda / ancho;
+    switch (pc) {
+    case NORTE: return y+1 < alto ? celda+ancho : -1;
+    case SUR: return y > 0 ? celda-ancho : -1;
+    case ESTE: return x+1 < ancho ? celda+1 : -1;
+    case OESTE: return x > 0 ? celda-1 : -1;
+    default: return -1;
+    }
+  }
+
+  public String getRegalo(int celda) {
+    return regalos.get(celda);
+  }
+
+  public boolean sueloMarcadoConTiza(int celda) {
+    return (celdas.get(celda) & TIZA) != 0;
+  }
+
+  public void marcaSueloConTiza(int celda) {
+    celdas.put(celda, (byte) (celdas.get(celda) | TIZA));
+  }
+
+  public void moverHacia(Direccion pc) {
+    int nueva = vecina(celda, pc);
+    if (nueva >= 0) {
+      this.celda = nueva;
+    } else throw new IllegalArgumentException("cannot move to "+pc+" at point ("+celda%ancho+","+celda/ancho+"); there is no path");
+  }
+
+  /**
+   * Opens or closes the way from (x,y) towards pc. As in Punto, only that
+   * side is changed; the opposite side of the neighbour is not.
+   */
+  public void setAccessible(int x, int y, Direccion pc, boolean accessible) {
+    int c = indice(x, y);
+    int bits = celdas.get(c);
+    bits = accessible ? bits | bit(pc) : bits & ~bit(pc);
+    celdas.put(c, (byte) bits);
+  }
+
+  /**
+   * Puts a gift at (x,y), or removes it if regalo is null.
+   */
+  public void setRegalo(int x, int y, String regalo) {
+    int c = indice(x, y);
+    if (regalo == null) regalos.remove(c);
+    else regalos.put(c, regalo);
+  }
+
+  /**
+   * Moves the courier to (x,y) without checking for a path.
+   */
+  public void setPosicion(int x, int y) {
+    this.celda = indice(x, y);
+  }
+
+  public String toString() {
+    return "LaberintoCompacto["+ancho+"x"+alto+", regalos="+regalos.size()+", en=("+celda%ancho+","+celda/ancho+")]";
+  }
+
+  private int indice(int x, int y) {
+    if (x < 0 || x >= ancho || y < 0 || y >= alto)
+      throw new IllegalArgumentException("point ("+x+","+y+") is outside the maze");
+    return y*ancho+x;
+  }
+
+  private static int bit(Direccion pc) {
+    return 1 << pc.ordinal();
+  }
+
+  private static int numCeldas(int ancho, int alto) {
+    if (ancho <= 0 || alto <= 0 || (long) ancho * alto > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("invalid dimensions "+ancho+"x"+alto);
+    return ancho * alto;
+  }
+
+  private static void leer(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = canal.read(buffer, posicion);
+      if (n < 0) throw new IOException("unexpected end of file");
+      posicion += n;
+    }
+  }
+
+  private static void escribir(FileChannel canal, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) canal.write(buffer);
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Checks and times the searches in Buscar on generated mazes of increasing
+ * size.
+ */
+package aed.delivery;
+
+import es.upm.aedlib.Pair;
+import es.upm.aedlib.positionlist.PositionList;
+
+/**
+ * For each side length (by default 100, 300, 1000 and 2000, that is up to
+ * four million cells) main runs Buscar.busca (depth-first) and
+ * Buscar.buscaMasCorto (breadth-first) on:
+ * <ul>
+ * <li>a perfect maze, where the path to the gift is unique, so both paths
+ * must have the same length;</li>
+ * <li>the same maze with extra openings, where the depth-first path may only
+ * be longer;</li>
+ * <li>a snake maze, whose path goes through every cell.</li>
+ * </ul>
+ * It checks the paths and that busca leaves the courier on the gift, and
+ * reports the cells visited per second by busca: each visited cell is the
+ * one busca marks with chalk. Side lengths can be given as arguments.
+ */
+public class MedicionBuscar {
+
+  public static void main(String[] args) {
+    int[] lados = { 100, 300, 1000, 2000 };
+    if (args.length > 0) {
+      lados = new int[args.length];
+      for (int i = 0; i < args.length; i++) lados[i] = Integer.parseInt(args[i]);
+    }
+    for (int lado : lados) {
+      LaberintoCompacto perfecto = GeneradorLaberintos.perfecto(lado, lado, lado);
+      int corto = medir("perfecto", perfecto, true);
+
+      LaberintoCompacto conHuecos = GeneradorLaberintos.perfecto(lado, lado, lado);
+      GeneradorLaberintos.abrirHuecos(conHuecos, lado * lado / 10, lado);
+      medir("con huecos", conHuecos, false);
+
+      LaberintoCompacto serpiente = GeneradorLaberintos.serpiente(lado, lado);
+      int largo = medir("serpiente", serpiente, true);
+      if (largo != lado * lado - 1)
+        throw new IllegalStateException("snake path of "+largo+" steps, expected "+(lado*lado-1));
+      System.out.println(lado+"x"+lado+": path to the gift "+corto+" steps in the perfect maze, "+largo+" in the snake");
+    }
+  }
+
+  /**
+   * Runs both searches on laberinto, checks their results and prints their
+   * times. Returns the length of the shortest path.
+   *
+   * @param mismoLargo true if the maze has a single path to the gift, so the
+   * depth-first path must be as short as the breadth-first one.
+   */
+  private static int medir(String nombre, LaberintoCompacto laberinto, boolean mismoLargo) {
+    int n = laberinto.getAncho() * laberinto.getAlto();
+
+    // buscaMasCorto does not change the maze, so it goes first
+    long inicio = System.nanoTime();
+    Pair<String, PositionList<Direccion>> corto = Buscar.buscaMasCorto(laberinto);
+    long nanosBfs = System.nanoTime() - inicio;
+
+    inicio = System.nanoTime();
+    Pair<String, PositionList<Direccion>> profundo = Buscar.busca(laberinto);
+    long nanosDfs = System.nanoTime() - inicio;
+
+    if (corto == null || profundo == null)
+      throw new IllegalStateException(nombre+": the gift was not found");
+    if (laberinto.getRegalo(laberinto.getCelda()) == null)
+      throw new IllegalStateException(nombre+": busca did not leave the courier on a gift");
+    int largoBfs = corto.getRight().size();
+    int largoDfs = profundo.getRight().size();
+    if (mismoLargo ? largoDfs != largoBfs : largoDfs < largoBfs)
+      throw new IllegalStateException(nombre+": busca found a path of "+largoDfs+" steps, buscaMasCorto one of "+largoBfs);
+
+    int visitadas = 0;
+    for (int c = 0; c < n; c++)
+      if (laberinto.sueloMarcadoConTiza(c)) visitadas++;
+    System.out.printf("  %-10s %dx%d: busca %d steps, %d cells in %.1f ms (%.0f cells/s); buscaMasCorto %d steps in %.1f ms%n",
+                      nombre, laberinto.getAncho(), laberinto.getAlto(), largoDfs, visitadas, nanosDfs / 1e6,
+                      visitadas * 1e9 / nanosDfs, largoBfs, nanosBfs / 1e6);
+    return largoBfs;
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * A Rejilla is a rectangular maze seen as numbered cells, so that the search
+ * algorithms in Buscar can run on any representation of it.
+ */
+package aed.delivery;
+
+public interface Rejilla {
+
+  /**
+   * Returns the number of cells in the x dimension.
+   */
+  public int getAncho();
+
+  /**
+   * Returns the number of cells in the y dimension.
+   */
+  public int getAlto();
+
+  /**
+   * Returns the cell where the courier is. The cell at (x,y) is numbered
+   * y*getAncho()+x.
+   */
+  public int getCelda();
+
+  /**
+   * Returns the cell reached from celda moving towards pc, or -1 if there is
+   * no path.
+   */
+  public int vecina(int celda, Direccion pc);
+
+  /**
+   * Returns the gift in celda, or null if there is none.
+   */
+  public String getRegalo(int celda);
+
+  public boolean sueloMarcadoConTiza(int celda);
+
+  public void marcaSueloConTiza(int celda);
+
+  /**
+   * Moves the courier towards pc.
+   * @throws IllegalArgumentException if there is no path in that direction.
+   */
+  public void moverHacia(Direccion pc);
+}
@@ -0,0 +1,187 @@
+package aed.treepriorityqueue;
+
+import java.util.Arrays;
+import java.util.Random;
+import es.upm.aedlib.Entry;
+
+/**
+ * Compara {@link AddressableBinaryHeap} y {@link PairingHeap} con el algoritmo
+ * de Dijkstra, que hace un insert por nodo alcanzado y un decreaseKey por cada
+ * arista que mejora una distancia. Como referencia se usa lo que había que
+ * hacer sin handles: {@link ArrayPriorityQueue} con entradas duplicadas que se
+ * descartan al salir si ya no son la distancia del nodo.
+ *
+ * Hay dos grafos: uno aleatorio (por defecto 200000 nodos y grado 8) y una
+ * rejilla (por defecto 700x700) con pesos al azar. Se comprueba que las tres
+ * colas dan las mismas distancias y se informa del tiempo por operación de
+ * cola (inserciones, decreaseKey y dequeue).
+ */
+public class AddressableBenchmark {
+
+	// Directed graph in compressed form: the edges of u are first[u]..first[u+1]-1
+	private static class Graph {
+		final int[] first;
+		final int[] target;
+		final int[] weight;
+
+		Graph(int[] first, int[] target, int[] weight) {
+			this.first = first;
+			this.target = target;
+			this.weight = weight;
+		}
+
+		int nodes() {
+			return first.length - 1;
+		}
+	}
+
+	// Creates an empty addressable queue of the implementation being measured
+	private interface Factory {
+		AddressablePriorityQueue<Long, Integer> create();
+	}
+
+	// Queue operations done by the last run
+	private static long operations;
+
+	public static void main(String[] args) {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		int side = args.length > 1 ? Integer.parseInt(args[1]) : 700;
+		run("aleatorio, " + nodes + " nodos", randomGraph(nodes, 8, 42));
+		run("rejilla " + side + "x" + side, grid(side, 42));
+	}
+
+	private static void run(String name, final Graph graph) {
+		long[] expected = dijkstraLazy(graph);
+		long lazyOperations = operations;
+		System.out.println(name + " (" + graph.target.length + " aristas)");
+
+		String[] names = { "AddressableBinaryHeap", "PairingHeap" };
+		Factory[] factories = { AddressableBinaryHeap::new, PairingHeap::new };
+		for (int q = 0; q < factories.length; q++) {
+			final Factory factory = factories[q];
+			if (!Arrays.equals(expected, dijkstra(graph, factory.create()))) {
+				throw new IllegalStateException(names[q] + " gives different distances");
+			}
+			Benchmark.run(names[q] + " decreaseKey", operations, () -> dijkstra(graph, factory.create()));
+		}
+		Benchmark.run("ArrayPriorityQueue duplicados", lazyOperations, () -> dijkstraLazy(graph));
+	}
+
+	// Dijkstra from node 0 with one entry per node and decreaseKey
+	private static long[] dijkstra(Graph graph, AddressablePriorityQueue<Long, Integer> queue) {
+		int n = graph.nodes();
+		long[] distance = new long[n];
+		Arrays.fill(distance, Long.MAX_VALUE);
+		@SuppressWarnings("unchecked")
+		AddressablePriorityQueue.Handle<Long, Integer>[] handles = new AddressablePriorityQueue.Handle[n];
+		long count = 0;
+
+		distance[0] = 0;
+		handles[0] = queue.insert(0L, 0);
+		count++;
+		try {
+			while (!queue.isEmpty()) {
+				int u = queue.dequeue().getValue();
+				count++;
+				for (int e = graph.first[u]; e < graph.first[u + 1]; e++) {
+					int v = graph.target[e];
+					long candidate = distance[u] + graph.weight[e];
+					if (candidate < distance[v]) {
+						// A node already dequeued has its final distance, so it never gets here
+						distance[v] = candidate;
+						if (handles[v] == null) {
+							handles[v] = queue.insert(candidate, v);
+						} else {
+							queue.decreaseKey(handles[v], candidate);
+						}
+						count++;
+					}
+				}
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("queue empty with isEmpty() false", e);
+		}
+		operations = count;
+		return distance;
+	}
+
+	// Dijkstra from node 0 inserting a new entry on every improvement and
+	// skipping the stale ones when they come out
+	private static long[] dijkstraLazy(Graph graph) {
+		int n = graph.nodes();
+		long[] distance = new long[n];
+		Arrays.fill(distance, Long.MAX_VALUE);
+		PriorityQueue<Long, Integer> queue = new ArrayPriorityQueue<>();
+		long count = 0;
+
+		distance[0] = 0;
+		queue.enqueue(0L, 0);
+		count++;
+		try {
+			while (!queue.isEmpty()) {
+				Entry<Long, Integer> min = queue.dequeue();
+				count++;
+				int u = min.getValue();
+				if (min.getKey() > distance[u]) {
+					continue;
+				}
+				for (int e = graph.first[u]; e < graph.first[u + 1]; e++) {
+					int v = graph.target[e];
+					long candidate = distance[u] + graph.weight[e];
+					if (candidate < distance[v]) {
+						distance[v] = candidate;
+						queue.enqueue(candidate, v);
+						count++;
+					}
+				}
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("queue empty with isEmpty() false", e);
+		}
+		operations = count;
+		return distance;
+	}
+
+	// n nodes, each with degree edges to random nodes, weights 1..1000
+	private static Graph randomGraph(int n, int degree, long seed) {
+		Random random = new Random(seed);
+		int[] first = new int[n + 1];
+		int[] target = new int[n * degree];
+		int[] weight = new int[n * degree];
+		for (int u = 0; u < n; u++) {
+			first[u] = u * degree;
+			for (int i = 0; i < degree; i++) {
+				target[u * degree + i] = random.nextInt(n);
+				weight[u * degree + i] = 1 + random.nextInt(1000);
+			}
+		}
+		first[n] = n * degree;
+		return new Graph(first, target, weight);
+	}
+
+	// side x side grid with edges both ways between neighbours, weights 1..1000
+	private static Graph grid(int side, long seed) {
+		Random random = new Random(seed);
+		int n = side * side;
+		int[] first = new int[n + 1];
+		int[] target = new int[4 * n];
+		int[] weight = new int[4 * n];
+		int edges = 0;
+		for (int u = 0; u < n; u++) {
+			first[u] = edges;
+			int x = u % side;
+			int y = u / side;
+			int[] neighbours = { x > 0 ? u - 1 : -1, x + 1 < side ? u + 1 : -1, y > 0 ? u - side : -1,
+					y + 1 < side ? u + side : -1 };
+			for (int v : neighbours) {
+				if (v >= 0) {
+					target[edges] = v;
+					weight[edges] = 1 + random.nextInt(1000);
+					edges++;
+				}
+			}
+		}
+		first[n] = edges;
+		return new Graph(first, Arrays.copyOf(target, edges), Arrays.copyOf(weight, edges));
+	}
+}
@@ -0,0 +1,227 @@
+package aed.treepriorityqueue;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import es.upm.aedlib.Entry;
+
+/**
+ * Montículo binario en array con manejadores. Es como
+ * {@link ArrayPriorityQueue}, pero cada elemento recuerda su índice en el
+ * array, de modo que decreaseKey, increaseKey y remove solo tienen que subir
+ * o bajar ese elemento: O(log n).
+ */
+public class AddressableBinaryHeap<K extends Comparable<K>, V> implements AddressablePriorityQueue<K, V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Heap array; only positions 0..size-1 are in use
+	private Node<K, V>[] heap;
+	private int size;
+	private int modCount;
+
+	// Entry of the heap, which is also its handle
+	private static class Node<K, V> implements Handle<K, V> {
+		private K key;
+		private final V value;
+		private int index; // Position in the heap array, or -1 once removed
+		private Object owner; // The heap that contains it, or null once removed
+
+		Node(K key, V value, Object owner) {
+			this.key = key;
+			this.value = value;
+			this.owner = owner;
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + key + "," + value + ")";
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public AddressableBinaryHeap() {
+		heap = (Node<K, V>[]) new Node[DEFAULT_CAPACITY];
+		size = 0;
+		modCount = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Entry<K, V> first() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return heap[0];
+	}
+
+	@Override
+	public void enqueue(K k, V v) {
+		insert(k, v);
+	}
+
+	@Override
+	public Handle<K, V> insert(K k, V v) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * heap.length);
+		}
+		Node<K, V> node = new Node<>(k, v, this);
+		heap[size] = node;
+		node.index = size;
+		size++;
+		modCount++;
+		upHeap(node.index);
+		return node;
+	}
+
+	@Override
+	public Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return removeAt(0);
+	}
+
+	@Override
+	public void decreaseKey(Handle<K, V> h, K k) {
+		Node<K, V> node = validate(h);
+		if (k.compareTo(node.key) > 0) {
+			throw new IllegalArgumentException("new key is greater than the current key");
+		}
+		node.key = k;
+		modCount++;
+		upHeap(node.index);
+	}
+
+	@Override
+	public void increaseKey(Handle<K, V> h, K k) {
+		Node<K, V> node = validate(h);
+		if (k.compareTo(node.key) < 0) {
+			throw new IllegalArgumentException("new key is smaller than the current key");
+		}
+		node.key = k;
+		modCount++;
+		downHeap(node.index);
+	}
+
+	@Override
+	public Entry<K, V> remove(Handle<K, V> h) {
+		return removeAt(validate(h).index);
+	}
+
+	@Override
+	public boolean contains(Handle<K, V> h) {
+		return h instanceof Node && ((Node<K, V>) h).owner == this;
+	}
+
+	/**
+	 * Recorre los elementos en el orden del array, no en orden de clave.
+	 */
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		return new Iterator<Entry<K, V>>() {
+			private int next = 0;
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return heap[next++];
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(heap, size));
+	}
+
+	private Node<K, V> validate(Handle<K, V> h) {
+		if (!contains(h)) {
+			throw new IllegalArgumentException("handle does not belong to this queue");
+		}
+		return (Node<K, V>) h;
+	}
+
+	// Removes the node at index i, moving the last node into its place
+	private Node<K, V> removeAt(int i) {
+		Node<K, V> node = heap[i];
+		size--;
+		modCount++;
+		if (i != size) {
+			Node<K, V> last = heap[size];
+			heap[i] = last;
+			last.index = i;
+			upHeap(i);
+			downHeap(last.index);
+		}
+		heap[size] = null;
+		node.index = -1;
+		node.owner = null;
+		return node;
+	}
+
+	private void upHeap(int i) {
+		Node<K, V> node = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (node.key.compareTo(heap[parent].key) >= 0) {
+				break;
+			}
+			heap[i] = heap[parent];
+			heap[i].index = i;
+			i = parent;
+		}
+		heap[i] = node;
+		node.index = i;
+	}
+
+	private void downHeap(int i) {
+		Node<K, V> node = heap[i];
+		while (2 * i + 1 < size) {
+			int smallerChild = 2 * i + 1;
+			if (smallerChild + 1 < size && heap[smallerChild + 1].key.compareTo(heap[smallerChild].key) < 0) {
+				smallerChild++;
+			}
+			if (heap[smallerChild].key.compareTo(node.key) >= 0) {
+				break;
+			}
+			heap[i] = heap[smallerChild];
+			heap[i].index = i;
+			i = smallerChild;
+		}
+		heap[i] = node;
+		node.index = i;
+	}
+
+}
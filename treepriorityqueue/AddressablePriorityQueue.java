@@ -0,0 +1,57 @@
+package aed.treepriorityqueue;
+
+import es.upm.aedlib.Entry;
+
+/**
+ * A Priority Queue whose entries can be reached after insertion: insert
+ * returns a handle, and the handle can be used to change the key of the
+ * entry or to remove it without dequeuing everything before it.
+ *
+ * A handle is valid while its entry is in the queue that created it. Using a
+ * handle of another queue, or one whose entry has been dequeued or removed,
+ * throws IllegalArgumentException.
+ */
+public interface AddressablePriorityQueue<K,V> extends PriorityQueue<K,V> {
+
+  /**
+   * A reference to an entry of the queue. It is also the entry itself, so
+   * its key and value can be read through it.
+   */
+  public interface Handle<K,V> extends Entry<K,V> {
+  }
+
+  /**
+   * Like enqueue, but returns a handle to the new entry.
+   */
+  public Handle<K,V> insert(K k, V v);
+
+  /**
+   * Changes the key of the entry to a key smaller than or equal to the
+   * current one.
+   *
+   * @throws IllegalArgumentException if the handle is not valid or the new
+   * key is greater than the current one.
+   */
+  public void decreaseKey(Handle<K,V> h, K k);
+
+  /**
+   * Changes the key of the entry to a key greater than or equal to the
+   * current one.
+   *
+   * @throws IllegalArgumentException if the handle is not valid or the new
+   * key is smaller than the current one.
+   */
+  public void increaseKey(Handle<K,V> h, K k);
+
+  /**
+   * Removes the entry from the queue and returns it.
+   *
+   * @throws IllegalArgumentException if the handle is not valid.
+   */
+  public Entry<K,V> remove(Handle<K,V> h);
+
+  /**
+   * Returns true if the handle refers to an entry currently in this queue.
+   */
+  public boolean contains(Handle<K,V> h);
+}
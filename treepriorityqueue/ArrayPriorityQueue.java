@@ -0,0 +1,181 @@
+package aed.treepriorityqueue;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import es.upm.aedlib.Entry;
+import es.upm.aedlib.EntryImpl;
+
+/**
+ * Cola de prioridad implementada como un montículo binario guardado en un
+ * array: los hijos del nodo i están en 2i+1 y 2i+2 y su padre en (i-1)/2. No
+ * hace falta buscar la posición de inserción ni la nueva última posición como
+ * en {@link TreePriorityQueue}: la última posición es siempre size-1.
+ *
+ * El array dobla su tamaño cuando se llena, de modo que enqueue es O(log n)
+ * amortizado.
+ */
+public class ArrayPriorityQueue<K extends Comparable<K>, V> implements PriorityQueue<K, V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Heap array; only positions 0..size-1 are in use
+	private Entry<K, V>[] heap;
+	private int size;
+	// Counts structural changes, for the fail-fast iterator
+	private int modCount;
+
+	public ArrayPriorityQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Crea una cola vacía con espacio para capacity elementos antes de crecer.
+	 *
+	 * @param capacity La capacidad inicial del array.
+	 * @throws IllegalArgumentException Si la capacidad es negativa.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ArrayPriorityQueue(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity < 0");
+		}
+		heap = (Entry<K, V>[]) new Entry[Math.max(capacity, 1)];
+		size = 0;
+		modCount = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Entry<K, V> first() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return heap[0];
+	}
+
+	/**
+	 * Inserta un nuevo elemento al final del array y lo sube hasta que se cumple
+	 * la propiedad de orden del montículo.
+	 *
+	 * @param k La clave del nuevo elemento.
+	 * @param v El valor asociado al nuevo elemento.
+	 */
+	@Override
+	public void enqueue(K k, V v) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * heap.length);
+		}
+		heap[size] = new EntryImpl<>(k, v);
+		size++;
+		modCount++;
+		upHeap(size - 1);
+	}
+
+	/**
+	 * Elimina y devuelve el elemento con la clave mínima. El último elemento del
+	 * array pasa a la raíz y se baja hasta su sitio.
+	 *
+	 * @return El elemento con la clave mínima.
+	 * @throws EmptyPriorityQueueException Si la cola de prioridad está vacía.
+	 */
+	@Override
+	public Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		Entry<K, V> min = heap[0];
+		size--;
+		heap[0] = heap[size];
+		heap[size] = null; // Let the GC reclaim the entry
+		modCount++;
+		if (size > 0) {
+			downHeap(0);
+		}
+		return min;
+	}
+
+	/**
+	 * Recorre los elementos en el orden del array (por niveles), no en orden de
+	 * clave. Falla con ConcurrentModificationException si la cola cambia durante
+	 * el recorrido.
+	 */
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		return new Iterator<Entry<K, V>>() {
+			private int next = 0;
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return heap[next++];
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(heap[i]);
+		}
+		return sb.append("]").toString();
+	}
+
+	// Moves the entry at i up while its key is smaller than its parent's
+	private void upHeap(int i) {
+		Entry<K, V> entry = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (entry.getKey().compareTo(heap[parent].getKey()) >= 0) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = entry;
+	}
+
+	// Moves the entry at i down while a child has a smaller key
+	private void downHeap(int i) {
+		Entry<K, V> entry = heap[i];
+		while (2 * i + 1 < size) {
+			int smallerChild = 2 * i + 1;
+			if (smallerChild + 1 < size
+					&& heap[smallerChild + 1].getKey().compareTo(heap[smallerChild].getKey()) < 0) {
+				smallerChild++;
+			}
+			if (heap[smallerChild].getKey().compareTo(entry.getKey()) >= 0) {
+				break;
+			}
+			heap[i] = heap[smallerChild];
+			i = smallerChild;
+		}
+		heap[i] = entry;
+	}
+
+}
@@ -0,0 +1,64 @@
+package aed.treepriorityqueue;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Utilidades de medición para los programas de comparación del paquete
+ * (HeapBenchmark y los demás). Son programas main(), no JMH: cada carga se
+ * ejecuta varias veces, las primeras solo calientan el JIT y de las demás se
+ * informa la más rápida.
+ */
+final class Benchmark {
+
+	// Rounds run before measuring, and measured rounds
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+
+	private Benchmark() {
+	}
+
+	/**
+	 * Devuelve los bytes reservados hasta ahora por el hilo actual, o -1 si la
+	 * JVM no lo sabe medir.
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+			if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+				return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Ejecuta la carga, que hace operations operaciones, y escribe una línea con
+	 * el nombre, los nanosegundos por operación de la ronda más rápida, las
+	 * operaciones por segundo y los bytes reservados por operación.
+	 *
+	 * @return Los nanosegundos por operación de la ronda más rápida.
+	 */
+	static double run(String name, long operations, Runnable workload) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			workload.run();
+		}
+		long best = Long.MAX_VALUE;
+		long bytes = -1;
+		for (int i = 0; i < ROUNDS; i++) {
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			workload.run();
+			long nanos = System.nanoTime() - start;
+			long allocatedAfter = allocatedBytes();
+			if (nanos < best) {
+				best = nanos;
+				bytes = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+			}
+		}
+		double nanosPerOperation = (double) best / operations;
+		System.out.printf("  %-40s %8.1f ns/op %8.2f Mops/s %8s bytes/op%n", name, nanosPerOperation,
+				1e3 / nanosPerOperation, bytes < 0 ? "n/a" : String.format("%.1f", (double) bytes / operations));
+		return nanosPerOperation;
+	}
+}
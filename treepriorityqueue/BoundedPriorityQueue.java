@@ -0,0 +1,276 @@
+package aed.treepriorityqueue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import es.upm.aedlib.Entry;
+import es.upm.aedlib.EntryImpl;
+
+/**
+ * Cola de prioridad acotada: guarda como mucho capacity elementos, los de
+ * menor clave. Si está llena, enqueue descarta el elemento de mayor clave
+ * (el nuevo, si es él) en O(log capacity), y la memoria no crece nunca.
+ *
+ * Es un montículo min-max sobre dos arrays reservados al crearla, uno de
+ * claves y otro de valores. En los niveles pares (la raíz es el nivel 0) cada
+ * clave es menor o igual que las de sus descendientes y en los impares mayor
+ * o igual, así que el mínimo está en la raíz y el máximo en uno de sus dos
+ * hijos: tanto dequeue como descartar el peor cuestan O(log capacity).
+ */
+public class BoundedPriorityQueue<K extends Comparable<K>, V> implements PriorityQueue<K, V> {
+
+	private final K[] keys;
+	private final V[] values;
+	private int size;
+	private int modCount;
+
+	/**
+	 * Crea una cola vacía que guarda como mucho capacity elementos.
+	 *
+	 * @param capacity El número máximo de elementos.
+	 * @throws IllegalArgumentException Si la capacidad no es positiva.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BoundedPriorityQueue(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity=" + capacity);
+		}
+		keys = (K[]) new Comparable[capacity];
+		values = (V[]) new Object[capacity];
+		size = 0;
+		modCount = 0;
+	}
+
+	/**
+	 * Devuelve el número máximo de elementos.
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Entry<K, V> first() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return new EntryImpl<>(keys[0], values[0]);
+	}
+
+	/**
+	 * Devuelve el elemento de mayor clave, el primero que se descartará.
+	 *
+	 * @throws EmptyPriorityQueueException Si la cola de prioridad está vacía.
+	 */
+	public Entry<K, V> last() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		int max = maxIndex();
+		return new EntryImpl<>(keys[max], values[max]);
+	}
+
+	@Override
+	public void enqueue(K k, V v) {
+		offer(k, v);
+	}
+
+	/**
+	 * Inserta el elemento si la cola no está llena o si su clave es menor que
+	 * la mayor de la cola, que entonces se descarta.
+	 *
+	 * @return true si el elemento se ha quedado en la cola.
+	 */
+	public boolean offer(K k, V v) {
+		if (size == keys.length) {
+			int max = maxIndex();
+			if (k.compareTo(keys[max]) >= 0) {
+				return false;
+			}
+			removeAt(max);
+		}
+		keys[size] = k;
+		values[size] = v;
+		size++;
+		modCount++;
+		pushUp(size - 1);
+		return true;
+	}
+
+	@Override
+	public Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+		Entry<K, V> min = first();
+		removeAt(0);
+		return min;
+	}
+
+	/**
+	 * Devuelve los elementos de la cola ordenados de menor a mayor clave, sin
+	 * sacarlos. Cuesta O(capacity log capacity).
+	 */
+	public List<Entry<K, V>> topK() {
+		List<Entry<K, V>> entries = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			entries.add(new EntryImpl<>(keys[i], values[i]));
+		}
+		entries.sort(new Comparator<Entry<K, V>>() {
+			@Override
+			public int compare(Entry<K, V> e1, Entry<K, V> e2) {
+				return e1.getKey().compareTo(e2.getKey());
+			}
+		});
+		return entries;
+	}
+
+	/**
+	 * Recorre los elementos en el orden de los arrays, no en orden de clave.
+	 * Para recorrerlos ordenados, usar {@link #topK()}.
+	 */
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		return new Iterator<Entry<K, V>>() {
+			private int next = 0;
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Entry<K, V> e = new EntryImpl<>(keys[next], values[next]);
+				next++;
+				return e;
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return topK().toString();
+	}
+
+	// Index of the largest key: one of the children of the root
+	private int maxIndex() {
+		if (size <= 2) {
+			return size - 1;
+		}
+		return less(1, 2) ? 2 : 1;
+	}
+
+	// Removes the entry at i, moving the last entry into its place
+	private void removeAt(int i) {
+		size--;
+		modCount++;
+		if (i != size) {
+			keys[i] = keys[size];
+			values[i] = values[size];
+			keys[size] = null;
+			values[size] = null;
+			pushDown(i);
+		} else {
+			keys[size] = null;
+			values[size] = null;
+		}
+	}
+
+	// Levels 0, 2, 4... are min levels
+	private static boolean isMinLevel(int i) {
+		return (31 - Integer.numberOfLeadingZeros(i + 1)) % 2 == 0;
+	}
+
+	private boolean less(int i, int j) {
+		return keys[i].compareTo(keys[j]) < 0;
+	}
+
+	private void swap(int i, int j) {
+		K k = keys[i];
+		keys[i] = keys[j];
+		keys[j] = k;
+		V v = values[i];
+		values[i] = values[j];
+		values[j] = v;
+	}
+
+	private void pushUp(int i) {
+		if (i == 0) {
+			return;
+		}
+		int parent = (i - 1) / 2;
+		if (isMinLevel(i)) {
+			if (less(parent, i)) {
+				swap(i, parent);
+				pushUp(parent, false);
+			} else {
+				pushUp(i, true);
+			}
+		} else {
+			if (less(i, parent)) {
+				swap(i, parent);
+				pushUp(parent, true);
+			} else {
+				pushUp(i, false);
+			}
+		}
+	}
+
+	// Moves i up through its grandparents, which are on the same kind of level
+	private void pushUp(int i, boolean min) {
+		while (i > 2) {
+			int grandparent = ((i - 1) / 2 - 1) / 2;
+			if (min ? less(i, grandparent) : less(grandparent, i)) {
+				swap(i, grandparent);
+				i = grandparent;
+			} else {
+				break;
+			}
+		}
+	}
+
+	private void pushDown(int i) {
+		boolean min = isMinLevel(i);
+		while (2 * i + 1 < size) {
+			// Best (smallest on min levels, largest on max levels) of children and grandchildren
+			// (children are 2i+1 and 2i+2, grandchildren 4i+3 to 4i+6)
+			int best = 2 * i + 1;
+			for (int c = 2 * i + 2; c <= 4 * i + 6 && c < size; c = c == 2 * i + 2 ? 4 * i + 3 : c + 1) {
+				if (min ? less(c, best) : less(best, c)) {
+					best = c;
+				}
+			}
+			if (!(min ? less(best, i) : less(i, best))) {
+				return;
+			}
+			swap(i, best);
+			if (best <= 2 * i + 2) {
+				// A child is on the other kind of level: nothing below it can be out of order
+				return;
+			}
+			int parent = (best - 1) / 2;
+			if (min ? less(parent, best) : less(best, parent)) {
+				swap(best, parent);
+			}
+			i = best;
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package aed.treepriorityqueue;
+
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import es.upm.aedlib.Entry;
+
+/**
+ * Mide el rendimiento de las colas concurrentes con 1, 2, 4, 8, 16 y 32 hilos
+ * sobre una misma cola, llena al principio con 100000 elementos. Cada hilo
+ * hace su parte de dos millones de operaciones hold: dequeue y enqueue con
+ * una clave un poco mayor que la que ha salido. Se comparan:
+ * <ul>
+ * <li>{@link TreePriorityQueue} con un único cerrojo para todas las
+ * operaciones, que es lo que había que hacer antes;</li>
+ * <li>{@link SkipListPriorityQueue}, estricta y sin cerrojos;</li>
+ * <li>{@link MultiQueuePriorityQueue} con tantos montículos por hilo como
+ * indica su factor de relajación 2.</li>
+ * </ul>
+ * Se informa de la ronda más rápida de varias, en millones de operaciones por
+ * segundo. Con menos procesadores que hilos el resultado mide sobre todo la
+ * contención de los cerrojos, no el paralelismo. Los números de hilos se
+ * pueden dar como argumentos.
+ */
+public class ConcurrentBenchmark {
+
+	private static final int SIZE = 100_000;
+	private static final int OPERATIONS = 2_000_000;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int ROUNDS = 3;
+
+	// Creates an empty queue for the given number of threads
+	private interface Factory {
+		PriorityQueue<Integer, Integer> create(int threads);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int[] threadCounts = { 1, 2, 4, 8, 16, 32 };
+		if (args.length > 0) {
+			threadCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				threadCounts[i] = Integer.parseInt(args[i]);
+			}
+		}
+		String[] names = { "TreePriorityQueue con cerrojo", "SkipListPriorityQueue", "MultiQueuePriorityQueue" };
+		Factory[] factories = { threads -> new LockedQueue<>(new TreePriorityQueue<Integer, Integer>()),
+				threads -> new SkipListPriorityQueue<>(), threads -> new MultiQueuePriorityQueue<>(threads, 2) };
+
+		System.out.println(Runtime.getRuntime().availableProcessors() + " procesadores, " + OPERATIONS
+				+ " operaciones hold sobre " + SIZE + " elementos");
+		for (int threads : threadCounts) {
+			System.out.println(threads + " hilos");
+			for (int q = 0; q < factories.length; q++) {
+				long best = Long.MAX_VALUE;
+				for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+					long nanos = run(factories[q].create(threads), threads);
+					if (round >= WARMUP_ROUNDS) {
+						best = Math.min(best, nanos);
+					}
+				}
+				System.out.printf("  %-40s %8.2f Mops/s%n", names[q], 2e3 * OPERATIONS / best);
+			}
+		}
+	}
+
+	// Fills the queue, runs the hold operations split among the threads and
+	// returns the nanoseconds from the start signal until the last one ends
+	private static long run(final PriorityQueue<Integer, Integer> queue, int threads)
+			throws InterruptedException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < SIZE; i++) {
+			int k = random.nextInt(SIZE);
+			queue.enqueue(k, k);
+		}
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int operations = OPERATIONS / threads + (t < OPERATIONS % threads ? 1 : 0);
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+					hold(queue, operations);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			workers[t].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		long nanos = System.nanoTime() - begin;
+		if (queue.size() != SIZE) {
+			throw new IllegalStateException("size " + queue.size() + " after the run, expected " + SIZE);
+		}
+		return nanos;
+	}
+
+	private static void hold(PriorityQueue<Integer, Integer> queue, int operations) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		try {
+			for (int i = 0; i < operations; i++) {
+				int k = queue.dequeue().getKey() + 1 + random.nextInt(SIZE);
+				queue.enqueue(k, k);
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("hold needs a non-empty queue", e);
+		}
+	}
+
+	// Any queue of this package behind a single lock
+	private static class LockedQueue<K, V> implements PriorityQueue<K, V> {
+		private final PriorityQueue<K, V> queue;
+
+		LockedQueue(PriorityQueue<K, V> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public synchronized int size() {
+			return queue.size();
+		}
+
+		@Override
+		public synchronized boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		@Override
+		public synchronized Entry<K, V> first() throws EmptyPriorityQueueException {
+			return queue.first();
+		}
+
+		@Override
+		public synchronized void enqueue(K k, V v) {
+			queue.enqueue(k, v);
+		}
+
+		@Override
+		public synchronized Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+			return queue.dequeue();
+		}
+
+		@Override
+		public synchronized Iterator<Entry<K, V>> iterator() {
+			return queue.iterator();
+		}
+	}
+}
@@ -0,0 +1,503 @@
+package aed.treepriorityqueue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import es.upm.aedlib.Entry;
+import es.upm.aedlib.EntryImpl;
+
+/**
+ * Cola de prioridad en memoria externa, para cuando hay más elementos de los
+ * que caben en el heap de Java.
+ *
+ * Como mucho maxInMemory elementos se guardan en un montículo en memoria.
+ * Cuando se llena, sus elementos se escriben ordenados en un fichero (un
+ * "tramo") proyectado en memoria (memory-mapped) y el montículo se vacía.
+ * dequeue compara el mínimo del montículo con la cabeza de cada tramo (otro
+ * montículo pequeño, uno por tramo) y lee del tramo solo el siguiente
+ * elemento: la mezcla de los tramos se hace poco a poco, al desencolar.
+ *
+ * Para no tener demasiados ficheros proyectados a la vez, nunca hay más de
+ * {@link #MAX_RUNS} tramos. Cada tramo tiene un nivel: 0 si viene del
+ * montículo y uno más que los suyos si viene de mezclar otros. Al llegar al
+ * máximo, antes de escribir un tramo nuevo se mezclan en uno solo los del
+ * nivel con más tramos, así que cada elemento se reescribe pocas veces.
+ *
+ * Las claves y los valores se pasan a bytes con los {@link Serializer} que
+ * se indiquen. Los contadores de bytes escritos y leídos permiten ver cuánta
+ * E/S cuesta cada operación.
+ *
+ * Los ficheros se borran al agotar cada tramo y en {@link #close()}. Los
+ * errores de E/S se lanzan como UncheckedIOException; si falla la escritura
+ * de un tramo, la cola se queda como estaba y el fichero se borra.
+ */
+public class ExternalPriorityQueue<K extends Comparable<K>, V> implements PriorityQueue<K, V>, Closeable {
+
+	/**
+	 * Número máximo de tramos abiertos a la vez.
+	 */
+	public static final int MAX_RUNS = 64;
+
+	private final int maxInMemory;
+	private final Serializer<K> keySerializer;
+	private final Serializer<V> valueSerializer;
+	private final Path directory;
+
+	private final Comparator<Entry<K, V>> entryComparator;
+	private final Comparator<Cursor> headComparator;
+	// Entries not yet spilled
+	private final java.util.PriorityQueue<Entry<K, V>> memory;
+	// Runs with entries left, ordered by their head key
+	private final java.util.PriorityQueue<Run> runs;
+	private int size;
+	private int modCount;
+	private boolean closed;
+
+	// I/O statistics
+	private long bytesWritten;
+	private long bytesRead;
+	private long runsWritten;
+	private long operations;
+
+	// Reads the entries of a run one at a time
+	private class Cursor {
+		final ByteBuffer buffer;
+		int remaining; // Entries after the head
+		Entry<K, V> head;
+
+		Cursor(ByteBuffer buffer, int entries) {
+			this.buffer = buffer;
+			this.remaining = entries;
+			advance();
+		}
+
+		// Starts where the other cursor is, without moving it
+		Cursor(Cursor other) {
+			this.buffer = other.buffer.duplicate();
+			this.remaining = other.remaining;
+			this.head = other.head;
+		}
+
+		// Reads the next entry into head, or sets it to null at the end
+		boolean advance() {
+			if (remaining == 0) {
+				head = null;
+				return false;
+			}
+			int start = buffer.position();
+			head = new EntryImpl<>(keySerializer.read(buffer), valueSerializer.read(buffer));
+			bytesRead += buffer.position() - start;
+			remaining--;
+			return true;
+		}
+
+		// Bytes of the entries not consumed yet, head included
+		long bytes() {
+			return buffer.remaining() + keySerializer.size(head.getKey()) + valueSerializer.size(head.getValue());
+		}
+	}
+
+	// A sorted run on disk, read through a mapped buffer
+	private class Run extends Cursor {
+		private final Path file;
+		private final int level; // 0 for spilled runs, one more than its inputs for merged runs
+
+		Run(Path file, MappedByteBuffer buffer, int entries, int level) {
+			super(buffer, entries);
+			this.file = file;
+			this.level = level;
+		}
+	}
+
+	/**
+	 * Crea una cola que guarda sus tramos en el directorio temporal del sistema.
+	 *
+	 * @param maxInMemory     Número máximo de elementos en memoria.
+	 * @param keySerializer   Serializador de las claves.
+	 * @param valueSerializer Serializador de los valores.
+	 */
+	public ExternalPriorityQueue(int maxInMemory, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+		this(maxInMemory, keySerializer, valueSerializer, null);
+	}
+
+	/**
+	 * Crea una cola que guarda sus tramos en el directorio indicado.
+	 *
+	 * @param maxInMemory     Número máximo de elementos en memoria.
+	 * @param keySerializer   Serializador de las claves.
+	 * @param valueSerializer Serializador de los valores.
+	 * @param directory       Directorio de los ficheros temporales, o null para
+	 *                        el directorio temporal del sistema.
+	 * @throws IllegalArgumentException Si maxInMemory no es positivo.
+	 */
+	public ExternalPriorityQueue(int maxInMemory, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+			Path directory) {
+		if (maxInMemory <= 0) {
+			throw new IllegalArgumentException("maxInMemory=" + maxInMemory);
+		}
+		this.maxInMemory = maxInMemory;
+		this.keySerializer = keySerializer;
+		this.valueSerializer = valueSerializer;
+		this.directory = directory;
+		this.entryComparator = new Comparator<Entry<K, V>>() {
+			@Override
+			public int compare(Entry<K, V> e1, Entry<K, V> e2) {
+				return e1.getKey().compareTo(e2.getKey());
+			}
+		};
+		this.memory = new java.util.PriorityQueue<>(entryComparator);
+		this.headComparator = new Comparator<Cursor>() {
+			@Override
+			public int compare(Cursor c1, Cursor c2) {
+				return c1.head.getKey().compareTo(c2.head.getKey());
+			}
+		};
+		this.runs = new java.util.PriorityQueue<>(headComparator);
+		this.size = 0;
+		this.modCount = 0;
+		this.closed = false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Entry<K, V> first() throws EmptyPriorityQueueException {
+		checkOpen();
+		operations++;
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return fromMemory() ? memory.peek() : runs.peek().head;
+	}
+
+	@Override
+	public void enqueue(K k, V v) {
+		checkOpen();
+		operations++;
+		if (memory.size() == maxInMemory) {
+			spill();
+		}
+		memory.add(new EntryImpl<>(k, v));
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+		checkOpen();
+		operations++;
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		Entry<K, V> min;
+		if (fromMemory()) {
+			min = memory.poll();
+		} else {
+			Run run = runs.poll();
+			min = run.head;
+			if (run.advance()) {
+				runs.add(run);
+			} else {
+				delete(run.file);
+			}
+		}
+		size--;
+		modCount++;
+		return min;
+	}
+
+	/**
+	 * Recorre los elementos sin orden de clave: primero los que están en
+	 * memoria y después los que quedan en cada tramo. No lee los tramos a
+	 * través de la cola, así que no cambia los contadores de E/S.
+	 */
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		checkOpen();
+		final List<Entry<K, V>> inMemory = new ArrayList<>(memory);
+		final List<Run> pendingRuns = new ArrayList<>(runs);
+		return new Iterator<Entry<K, V>>() {
+			private final int expectedModCount = modCount;
+			private int nextInMemory = 0;
+			private int nextRun = 0;
+			private Entry<K, V> head; // Head of the current run, not returned yet
+			private ByteBuffer buffer; // Rest of the current run
+			private int remaining;
+
+			@Override
+			public boolean hasNext() {
+				if (nextInMemory < inMemory.size() || head != null) {
+					return true;
+				}
+				if (buffer != null && remaining > 0) {
+					return true;
+				}
+				if (nextRun < pendingRuns.size()) {
+					Run run = pendingRuns.get(nextRun++);
+					head = run.head;
+					buffer = run.buffer.duplicate();
+					remaining = run.remaining;
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				if (nextInMemory < inMemory.size()) {
+					return inMemory.get(nextInMemory++);
+				}
+				if (head != null) {
+					Entry<K, V> e = head;
+					head = null;
+					return e;
+				}
+				remaining--;
+				return new EntryImpl<>(keySerializer.read(buffer), valueSerializer.read(buffer));
+			}
+		};
+	}
+
+	/**
+	 * Borra los ficheros de los tramos. La cola no se puede usar después.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		for (Run run : runs) {
+			delete(run.file);
+		}
+		runs.clear();
+		memory.clear();
+		size = 0;
+	}
+
+	/**
+	 * Devuelve los bytes escritos en tramos hasta ahora.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Devuelve los bytes leídos de tramos hasta ahora.
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Devuelve el número de tramos escritos hasta ahora.
+	 */
+	public long getRunsWritten() {
+		return runsWritten;
+	}
+
+	/**
+	 * Devuelve el número de llamadas a enqueue, dequeue y first hasta ahora.
+	 */
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Devuelve los bytes de E/S (escritos más leídos) por operación, o 0 si no
+	 * ha habido operaciones.
+	 */
+	public double getBytesPerOperation() {
+		return operations == 0 ? 0 : (double) (bytesWritten + bytesRead) / operations;
+	}
+
+	@Override
+	public String toString() {
+		return "ExternalPriorityQueue[size=" + size + ", inMemory=" + memory.size() + ", runs=" + runs.size()
+				+ ", bytesWritten=" + bytesWritten + ", bytesRead=" + bytesRead + ", operations=" + operations
+				+ "]";
+	}
+
+	// True if the minimum is in memory rather than at the head of a run
+	private boolean fromMemory() {
+		if (runs.isEmpty()) {
+			return true;
+		}
+		if (memory.isEmpty()) {
+			return false;
+		}
+		return memory.peek().getKey().compareTo(runs.peek().head.getKey()) <= 0;
+	}
+
+	/**
+	 * Escribe el montículo en memoria, ordenado, en un tramo nuevo y lo vacía.
+	 * El montículo solo se vacía si el tramo se ha escrito entero.
+	 */
+	private void spill() {
+		if (runs.size() >= MAX_RUNS) {
+			mergeRuns();
+		}
+		List<Entry<K, V>> sorted = new ArrayList<>(memory);
+		sorted.sort(entryComparator);
+		long bytes = 0;
+		for (Entry<K, V> e : sorted) {
+			bytes += keySerializer.size(e.getKey()) + valueSerializer.size(e.getValue());
+		}
+		runs.add(writeRun(sorted.iterator(), sorted.size(), bytes, 0));
+		memory.clear();
+	}
+
+	/**
+	 * Mezcla en un tramo nuevo los tramos del nivel con más tramos, de menor a
+	 * mayor tamaño y sin pasar del tamaño máximo de una proyección. Los tramos
+	 * originales se leen con cursores propios, así que si la escritura falla
+	 * siguen intactos.
+	 */
+	private void mergeRuns() {
+		int maxLevel = 0;
+		for (Run run : runs) {
+			maxLevel = Math.max(maxLevel, run.level);
+		}
+		int[] perLevel = new int[maxLevel + 1];
+		int level = 0;
+		for (Run run : runs) {
+			perLevel[run.level]++;
+			if (perLevel[run.level] > perLevel[level]
+					|| (perLevel[run.level] == perLevel[level] && run.level < level)) {
+				level = run.level;
+			}
+		}
+		List<Run> candidates = new ArrayList<>();
+		for (Run run : runs) {
+			if (run.level == level) {
+				candidates.add(run);
+			}
+		}
+		candidates.sort(new Comparator<Run>() {
+			@Override
+			public int compare(Run r1, Run r2) {
+				return Long.compare(r1.bytes(), r2.bytes());
+			}
+		});
+		List<Run> merged = new ArrayList<>();
+		long bytes = 0;
+		int count = 0;
+		for (Run run : candidates) {
+			long runBytes = run.bytes();
+			if (bytes + runBytes > Integer.MAX_VALUE) {
+				break;
+			}
+			merged.add(run);
+			bytes += runBytes;
+			count += run.remaining + 1;
+		}
+		if (merged.size() < 2) {
+			throw new IllegalStateException("too many runs and too large to merge; raise maxInMemory");
+		}
+		final java.util.PriorityQueue<Cursor> heads = new java.util.PriorityQueue<>(headComparator);
+		for (Run run : merged) {
+			heads.add(new Cursor(run));
+		}
+		Run result = writeRun(new Iterator<Entry<K, V>>() {
+			@Override
+			public boolean hasNext() {
+				return !heads.isEmpty();
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				Cursor cursor = heads.poll();
+				Entry<K, V> e = cursor.head;
+				if (cursor.advance()) {
+					heads.add(cursor);
+				}
+				return e;
+			}
+		}, count, bytes, level + 1);
+		runs.removeAll(merged);
+		for (Run run : merged) {
+			delete(run.file);
+		}
+		runs.add(result);
+	}
+
+	/**
+	 * Escribe en un fichero nuevo, proyectado con el tamaño exacto, los
+	 * elementos dados en orden de clave. Si algo falla, borra el fichero.
+	 */
+	private Run writeRun(Iterator<Entry<K, V>> sorted, int count, long bytes, int level) {
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalStateException("run of " + bytes + " bytes is too large to map; lower maxInMemory");
+		}
+		Path file = null;
+		boolean written = false;
+		try {
+			file = directory == null ? Files.createTempFile("pq-run", ".bin")
+					: Files.createTempFile(directory, "pq-run", ".bin");
+			MappedByteBuffer buffer;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				// The mapping stays valid after the channel is closed
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+			}
+			while (sorted.hasNext()) {
+				Entry<K, V> e = sorted.next();
+				keySerializer.write(e.getKey(), buffer);
+				valueSerializer.write(e.getValue(), buffer);
+			}
+			buffer.flip();
+			Run run = new Run(file, buffer, count, level);
+			bytesWritten += bytes;
+			runsWritten++;
+			written = true;
+			return run;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (!written && file != null) {
+				delete(file);
+			}
+		}
+	}
+
+	private void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// Some systems do not delete mapped files; try again at exit
+			file.toFile().deleteOnExit();
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("queue is closed");
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package aed.treepriorityqueue;
+
+import java.util.Random;
+import es.upm.aedlib.Entry;
+
+/**
+ * Compara {@link ArrayPriorityQueue} con {@link TreePriorityQueue}, y con
+ * java.util.PriorityQueue como referencia, en dos cargas:
+ * <ul>
+ * <li>llenar y vaciar: n enqueue con claves al azar y después n dequeue,
+ * repetido hasta sumar unos dos millones de operaciones;</li>
+ * <li>hold: con la cola en tamaño n, un millón de veces dequeue seguido de un
+ * enqueue con una clave más tardía, como en una simulación de eventos.</li>
+ * </ul>
+ * Las claves se crean antes de medir, así que los bytes por operación son los
+ * que reserva la cola. Los tamaños n se pueden dar como argumentos (por
+ * defecto 1000, 100000 y 1000000).
+ */
+public class HeapBenchmark {
+
+	private static final int HOLD_OPERATIONS = 1_000_000;
+
+	// Creates an empty queue of the implementation being measured
+	private interface Factory {
+		PriorityQueue<Integer, Integer> create();
+	}
+
+	// Keeps results alive so the JIT cannot drop the work
+	static volatile long sink;
+
+	public static void main(String[] args) {
+		int[] sizes = { 1_000, 100_000, 1_000_000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		String[] names = { "TreePriorityQueue", "ArrayPriorityQueue", "java.util.PriorityQueue" };
+		Factory[] factories = { TreePriorityQueue::new, ArrayPriorityQueue::new, JavaUtilQueue::new };
+
+		for (int n : sizes) {
+			Random random = new Random(n);
+			final Integer[] keys = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				keys[i] = random.nextInt();
+			}
+			final Integer[] later = new Integer[HOLD_OPERATIONS];
+			for (int i = 0; i < HOLD_OPERATIONS; i++) {
+				later[i] = Integer.MAX_VALUE - HOLD_OPERATIONS + i;
+			}
+
+			final int repetitions = Math.max(1, HOLD_OPERATIONS / n);
+			System.out.println("n = " + n + ", llenar y vaciar (" + 2L * n * repetitions + " operaciones)");
+			for (int q = 0; q < factories.length; q++) {
+				final Factory factory = factories[q];
+				Benchmark.run(names[q], 2L * n * repetitions, () -> {
+					for (int r = 0; r < repetitions; r++) {
+						fillAndDrain(factory.create(), keys);
+					}
+				});
+			}
+			System.out.println("n = " + n + ", hold (" + 2 * HOLD_OPERATIONS + " operaciones)");
+			for (int q = 0; q < factories.length; q++) {
+				final PriorityQueue<Integer, Integer> queue = factories[q].create();
+				for (Integer k : keys) {
+					queue.enqueue(k, k);
+				}
+				Benchmark.run(names[q], 2L * HOLD_OPERATIONS, () -> hold(queue, later));
+			}
+		}
+	}
+
+	private static void fillAndDrain(PriorityQueue<Integer, Integer> queue, Integer[] keys) {
+		for (Integer k : keys) {
+			queue.enqueue(k, k);
+		}
+		long previous = Long.MIN_VALUE;
+		long sum = 0;
+		try {
+			while (!queue.isEmpty()) {
+				int k = queue.dequeue().getKey();
+				if (k < previous) {
+					throw new IllegalStateException("dequeue out of order: " + k + " after " + previous);
+				}
+				previous = k;
+				sum += k;
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("queue empty with isEmpty() false", e);
+		}
+		sink = sum;
+	}
+
+	private static void hold(PriorityQueue<Integer, Integer> queue, Integer[] later) {
+		long sum = 0;
+		try {
+			for (Integer k : later) {
+				Entry<Integer, Integer> min = queue.dequeue();
+				sum += min.getKey();
+				queue.enqueue(k, k);
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("hold needs a non-empty queue", e);
+		}
+		sink = sum;
+	}
+
+	// java.util.PriorityQueue behind the interface of this package
+	private static class JavaUtilQueue implements PriorityQueue<Integer, Integer> {
+		private final java.util.PriorityQueue<Entry<Integer, Integer>> queue = new java.util.PriorityQueue<>(
+				(e1, e2) -> e1.getKey().compareTo(e2.getKey()));
+
+		@Override
+		public int size() {
+			return queue.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		@Override
+		public Entry<Integer, Integer> first() throws EmptyPriorityQueueException {
+			if (queue.isEmpty()) {
+				throw new EmptyPriorityQueueException();
+			}
+			return queue.peek();
+		}
+
+		@Override
+		public void enqueue(Integer k, Integer v) {
+			queue.add(new es.upm.aedlib.EntryImpl<>(k, v));
+		}
+
+		@Override
+		public Entry<Integer, Integer> dequeue() throws EmptyPriorityQueueException {
+			if (queue.isEmpty()) {
+				throw new EmptyPriorityQueueException();
+			}
+			return queue.poll();
+		}
+
+		@Override
+		public java.util.Iterator<Entry<Integer, Integer>> iterator() {
+			return queue.iterator();
+		}
+	}
+}
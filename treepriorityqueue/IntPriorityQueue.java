@@ -0,0 +1,211 @@
+package aed.treepriorityqueue;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import es.upm.aedlib.Entry;
+import es.upm.aedlib.EntryImpl;
+
+/**
+ * Cola de prioridad con claves int. Es un montículo binario en dos arrays
+ * paralelos, uno de claves primitivas y otro de valores, así que las
+ * comparaciones no pasan por compareTo y no se crea ningún objeto por
+ * operación (salvo cuando crecen los arrays).
+ *
+ * Los métodos sin reserva de memoria son enqueue(int, V), firstKey,
+ * firstValue y dequeueValue. También implementa PriorityQueue&lt;Integer,V&gt;
+ * para poder usarse donde se espera una cola genérica, pero first, dequeue y
+ * el iterador crean una Entry en cada llamada.
+ */
+public class IntPriorityQueue<V> implements PriorityQueue<Integer, V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Heap arrays; only positions 0..size-1 are in use
+	private int[] keys;
+	private V[] values;
+	private int size;
+	private int modCount;
+
+	public IntPriorityQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Crea una cola vacía con espacio para capacity elementos antes de crecer.
+	 *
+	 * @param capacity La capacidad inicial de los arrays.
+	 * @throws IllegalArgumentException Si la capacidad es negativa.
+	 */
+	@SuppressWarnings("unchecked")
+	public IntPriorityQueue(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity < 0");
+		}
+		keys = new int[Math.max(capacity, 1)];
+		values = (V[]) new Object[keys.length];
+		size = 0;
+		modCount = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Inserta un elemento con clave primitiva.
+	 */
+	public void enqueue(int k, V v) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * keys.length);
+			values = Arrays.copyOf(values, keys.length);
+		}
+		size++;
+		modCount++;
+		upHeap(size - 1, k, v);
+	}
+
+	@Override
+	public void enqueue(Integer k, V v) {
+		enqueue(k.intValue(), v);
+	}
+
+	/**
+	 * Devuelve la clave mínima.
+	 *
+	 * @throws EmptyPriorityQueueException Si la cola de prioridad está vacía.
+	 */
+	public int firstKey() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return keys[0];
+	}
+
+	/**
+	 * Devuelve el valor asociado a la clave mínima.
+	 *
+	 * @throws EmptyPriorityQueueException Si la cola de prioridad está vacía.
+	 */
+	public V firstValue() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return values[0];
+	}
+
+	@Override
+	public Entry<Integer, V> first() throws EmptyPriorityQueueException {
+		return new EntryImpl<>(firstKey(), values[0]);
+	}
+
+	/**
+	 * Elimina el elemento con la clave mínima y devuelve su valor. Para saber
+	 * también la clave, llamar antes a firstKey.
+	 *
+	 * @throws EmptyPriorityQueueException Si la cola de prioridad está vacía.
+	 */
+	public V dequeueValue() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		V min = values[0];
+		size--;
+		modCount++;
+		int lastKey = keys[size];
+		V lastValue = values[size];
+		values[size] = null; // Let the GC reclaim the value
+		if (size > 0) {
+			downHeap(0, lastKey, lastValue);
+		}
+		return min;
+	}
+
+	@Override
+	public Entry<Integer, V> dequeue() throws EmptyPriorityQueueException {
+		int k = firstKey();
+		return new EntryImpl<>(k, dequeueValue());
+	}
+
+	/**
+	 * Recorre los elementos en el orden de los arrays, no en orden de clave.
+	 */
+	@Override
+	public Iterator<Entry<Integer, V>> iterator() {
+		return new Iterator<Entry<Integer, V>>() {
+			private int next = 0;
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Entry<Integer, V> next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Entry<Integer, V> e = new EntryImpl<>(keys[next], values[next]);
+				next++;
+				return e;
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append("(").append(keys[i]).append(",").append(values[i]).append(")");
+		}
+		return sb.append("]").toString();
+	}
+
+	// Places (k, v) at i or above it
+	private void upHeap(int i, int k, V v) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (k >= keys[parent]) {
+				break;
+			}
+			keys[i] = keys[parent];
+			values[i] = values[parent];
+			i = parent;
+		}
+		keys[i] = k;
+		values[i] = v;
+	}
+
+	// Places (k, v) at i or below it
+	private void downHeap(int i, int k, V v) {
+		while (2 * i + 1 < size) {
+			int smallerChild = 2 * i + 1;
+			if (smallerChild + 1 < size && keys[smallerChild + 1] < keys[smallerChild]) {
+				smallerChild++;
+			}
+			if (keys[smallerChild] >= k) {
+				break;
+			}
+			keys[i] = keys[smallerChild];
+			values[i] = values[smallerChild];
+			i = smallerChild;
+		}
+		keys[i] = k;
+		values[i] = v;
+	}
+
+}
@@ -0,0 +1,202 @@
+package aed.treepriorityqueue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import es.upm.aedlib.Entry;
+import es.upm.aedlib.EntryImpl;
+
+/**
+ * Cola de prioridad concurrente relajada (MultiQueue).
+ *
+ * Los elementos se reparten entre threads * relaxation montículos, cada uno
+ * con su propio cerrojo. enqueue inserta en un montículo al azar que no esté
+ * ocupado. dequeue mira el mínimo de dos montículos al azar y quita el menor
+ * de los dos. Así casi nunca hay dos hilos esperando el mismo cerrojo, a
+ * cambio de que dequeue no devuelva siempre el mínimo global sino, en
+ * promedio, uno de los O(threads * relaxation) menores. Cuanto mayor es el
+ * factor de relajación, menos contención y menos precisión.
+ *
+ * Si hace falta que dequeue devuelva siempre el mínimo, usar
+ * {@link SkipListPriorityQueue}.
+ *
+ * dequeue solo lanza EmptyPriorityQueueException tras encontrar vacíos todos
+ * los montículos; first devuelve el menor de los mínimos de los montículos.
+ * size es exacto cuando no hay operaciones en curso.
+ */
+public class MultiQueuePriorityQueue<K extends Comparable<K>, V> implements PriorityQueue<K, V> {
+
+	private final SubQueue<K, V>[] queues;
+	private final AtomicInteger size;
+
+	// One of the heaps, with its lock and a copy of its minimum readable without the lock
+	private static class SubQueue<K extends Comparable<K>, V> {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final java.util.PriorityQueue<Entry<K, V>> heap = new java.util.PriorityQueue<>(
+				new Comparator<Entry<K, V>>() {
+					@Override
+					public int compare(Entry<K, V> e1, Entry<K, V> e2) {
+						return e1.getKey().compareTo(e2.getKey());
+					}
+				});
+		private volatile Entry<K, V> top;
+	}
+
+	/**
+	 * Crea una cola para el número de procesadores disponibles y factor de
+	 * relajación 2.
+	 */
+	public MultiQueuePriorityQueue() {
+		this(Runtime.getRuntime().availableProcessors(), 2);
+	}
+
+	/**
+	 * Crea una cola con threads * relaxation montículos.
+	 *
+	 * @param threads    Número de hilos que se espera que la usen a la vez.
+	 * @param relaxation Montículos por hilo.
+	 * @throws IllegalArgumentException Si alguno de los dos no es positivo.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public MultiQueuePriorityQueue(int threads, int relaxation) {
+		if (threads <= 0 || relaxation <= 0) {
+			throw new IllegalArgumentException("threads and relaxation must be positive");
+		}
+		queues = (SubQueue<K, V>[]) new SubQueue[threads * relaxation];
+		for (int i = 0; i < queues.length; i++) {
+			queues[i] = new SubQueue<>();
+		}
+		size = new AtomicInteger();
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	@Override
+	public Entry<K, V> first() throws EmptyPriorityQueueException {
+		Entry<K, V> min = null;
+		for (SubQueue<K, V> q : queues) {
+			Entry<K, V> top = q.top;
+			if (top != null && (min == null || top.getKey().compareTo(min.getKey()) < 0)) {
+				min = top;
+			}
+		}
+		if (min == null) {
+			throw new EmptyPriorityQueueException();
+		}
+		return min;
+	}
+
+	@Override
+	public void enqueue(K k, V v) {
+		Entry<K, V> entry = new EntryImpl<>(k, v);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (true) {
+			SubQueue<K, V> q = queues[random.nextInt(queues.length)];
+			if (q.lock.tryLock()) {
+				try {
+					q.heap.add(entry);
+					q.top = q.heap.peek();
+				} finally {
+					q.lock.unlock();
+				}
+				size.incrementAndGet();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		// A few attempts with the two-choice rule, then a full scan
+		for (int attempt = 0; attempt < queues.length; attempt++) {
+			SubQueue<K, V> q1 = queues[random.nextInt(queues.length)];
+			SubQueue<K, V> q2 = queues[random.nextInt(queues.length)];
+			Entry<K, V> top1 = q1.top;
+			Entry<K, V> top2 = q2.top;
+			if (top1 == null && top2 == null) {
+				continue;
+			}
+			SubQueue<K, V> best = top2 == null
+					|| (top1 != null && top1.getKey().compareTo(top2.getKey()) <= 0) ? q1 : q2;
+			Entry<K, V> min = tryPoll(best);
+			if (min != null) {
+				return min;
+			}
+		}
+		for (SubQueue<K, V> q : queues) {
+			q.lock.lock();
+			try {
+				Entry<K, V> min = poll(q);
+				if (min != null) {
+					return min;
+				}
+			} finally {
+				q.lock.unlock();
+			}
+		}
+		throw new EmptyPriorityQueueException();
+	}
+
+	/**
+	 * Recorre una copia de los elementos, hecha montículo a montículo, sin orden
+	 * de clave.
+	 */
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		List<Entry<K, V>> entries = new ArrayList<>();
+		for (SubQueue<K, V> q : queues) {
+			q.lock.lock();
+			try {
+				entries.addAll(q.heap);
+			} finally {
+				q.lock.unlock();
+			}
+		}
+		return entries.iterator();
+	}
+
+	@Override
+	public String toString() {
+		List<Entry<K, V>> entries = new ArrayList<>();
+		for (Entry<K, V> e : this) {
+			entries.add(e);
+		}
+		return entries.toString();
+	}
+
+	// Polls q if its lock is free, or returns null
+	private Entry<K, V> tryPoll(SubQueue<K, V> q) {
+		if (!q.lock.tryLock()) {
+			return null;
+		}
+		try {
+			return poll(q);
+		} finally {
+			q.lock.unlock();
+		}
+	}
+
+	// Polls q, whose lock must be held
+	private Entry<K, V> poll(SubQueue<K, V> q) {
+		Entry<K, V> min = q.heap.poll();
+		q.top = q.heap.peek();
+		if (min != null) {
+			size.decrementAndGet();
+		}
+		return min;
+	}
+
+}
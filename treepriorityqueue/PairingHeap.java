@@ -0,0 +1,376 @@
+package aed.treepriorityqueue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import es.upm.aedlib.Entry;
+
+/**
+ * Montículo de emparejamiento (pairing heap) con manejadores.
+ *
+ * Es un árbol general con el mínimo en la raíz. Insertar y decreaseKey solo
+ * enlazan un árbol con la raíz (O(1)); dequeue quita la raíz y empareja sus
+ * hijos en dos pasadas, de izquierda a derecha y luego de derecha a
+ * izquierda, con coste O(log n) amortizado. increaseKey y remove cortan el
+ * subárbol del nodo y lo vuelven a enlazar, también en O(log n) amortizado.
+ *
+ * Los hijos de un nodo forman una lista doblemente enlazada: child apunta al
+ * primero, sibling al siguiente hermano, y prev al hermano anterior o, en el
+ * primer hijo, al padre.
+ *
+ * Dos montículos se unen con meld en O(1): la raíz de uno pasa a ser hija de
+ * la del otro. Los manejadores del montículo absorbido siguen siendo válidos
+ * en el que lo absorbe; para ello cada nodo apunta a un "propietario" y, al
+ * unir, el propietario del absorbido pasa a reenviar al del otro (como en
+ * union-find, con compresión de caminos).
+ */
+public class PairingHeap<K extends Comparable<K>, V> implements AddressablePriorityQueue<K, V> {
+
+	private Node<K, V> root;
+	private int size;
+	private int modCount;
+	private Owner owner; // Identifies the nodes of this heap
+
+	// Owner of a set of nodes; after a meld it forwards to the owner of the other heap
+	private static class Owner {
+		private Owner forward;
+	}
+
+	// Entry of the heap, which is also its handle
+	private static class Node<K, V> implements Handle<K, V> {
+		private K key;
+		private final V value;
+		private Node<K, V> child; // First child
+		private Node<K, V> sibling; // Next sibling
+		private Node<K, V> prev; // Previous sibling, or parent for the first child
+		private Owner owner; // Owner of the heap that contains it, or null once removed
+
+		Node(K key, V value, Owner owner) {
+			this.key = key;
+			this.value = value;
+			this.owner = owner;
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + key + "," + value + ")";
+		}
+	}
+
+	public PairingHeap() {
+		root = null;
+		size = 0;
+		modCount = 0;
+		owner = new Owner();
+	}
+
+	/**
+	 * Crea un montículo con los elementos dados en O(n). Los árboles de un nodo
+	 * se enlazan de dos en dos en pasadas sucesivas, lo que deja un árbol
+	 * equilibrado en lugar de una raíz con n-1 hijos.
+	 *
+	 * @param entries Los elementos iniciales.
+	 */
+	public PairingHeap(Iterable<? extends Entry<K, V>> entries) {
+		this();
+		List<Node<K, V>> trees = new ArrayList<>();
+		for (Entry<K, V> e : entries) {
+			trees.add(new Node<>(e.getKey(), e.getValue(), owner));
+		}
+		size = trees.size();
+		// Each pass halves the number of trees: n/2 + n/4 + ... links in total
+		while (trees.size() > 1) {
+			int n = 0;
+			for (int i = 0; i < trees.size(); i += 2) {
+				Node<K, V> b = i + 1 < trees.size() ? trees.get(i + 1) : null;
+				trees.set(n++, link(trees.get(i), b));
+			}
+			trees.subList(n, trees.size()).clear();
+		}
+		root = trees.isEmpty() ? null : trees.get(0);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Entry<K, V> first() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return root;
+	}
+
+	@Override
+	public void enqueue(K k, V v) {
+		insert(k, v);
+	}
+
+	@Override
+	public Handle<K, V> insert(K k, V v) {
+		Node<K, V> node = new Node<>(k, v, owner);
+		root = link(root, node);
+		size++;
+		modCount++;
+		return node;
+	}
+
+	@Override
+	public Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+		if (isEmpty()) {
+			throw new EmptyPriorityQueueException();
+		}
+		return remove(root);
+	}
+
+	@Override
+	public void decreaseKey(Handle<K, V> h, K k) {
+		Node<K, V> node = validate(h);
+		if (k.compareTo(node.key) > 0) {
+			throw new IllegalArgumentException("new key is greater than the current key");
+		}
+		node.key = k;
+		modCount++;
+		if (node != root) {
+			// The subtree of the node is still a heap: cut it and link it with the root
+			cut(node);
+			root = link(root, node);
+		}
+	}
+
+	@Override
+	public void increaseKey(Handle<K, V> h, K k) {
+		Node<K, V> node = validate(h);
+		if (k.compareTo(node.key) < 0) {
+			throw new IllegalArgumentException("new key is smaller than the current key");
+		}
+		modCount++;
+		// The children may now be smaller than the node: take the node out
+		// alone and insert it again with the new key
+		detach(node);
+		node.key = k;
+		root = link(root, node);
+	}
+
+	@Override
+	public Entry<K, V> remove(Handle<K, V> h) {
+		Node<K, V> node = validate(h);
+		detach(node);
+		size--;
+		modCount++;
+		node.owner = null;
+		return node;
+	}
+
+	@Override
+	public boolean contains(Handle<K, V> h) {
+		if (!(h instanceof Node)) {
+			return false;
+		}
+		Node<K, V> node = (Node<K, V>) h;
+		if (node.owner == null) {
+			return false;
+		}
+		node.owner = find(node.owner);
+		return node.owner == owner;
+	}
+
+	/**
+	 * Mueve todos los elementos de other a este montículo en O(1) y deja other
+	 * vacío. Los manejadores de other pasan a ser manejadores de este montículo.
+	 *
+	 * @param other El montículo a absorber.
+	 * @throws IllegalArgumentException Si other es este mismo montículo.
+	 */
+	public void meld(PairingHeap<K, V> other) {
+		if (other == this) {
+			throw new IllegalArgumentException("cannot meld a heap with itself");
+		}
+		root = link(root, other.root);
+		size += other.size;
+		modCount++;
+		other.owner.forward = owner;
+		other.owner = new Owner();
+		other.root = null;
+		other.size = 0;
+		other.modCount++;
+	}
+
+	/**
+	 * Recorre los elementos en preorden, no en orden de clave.
+	 */
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		return new Iterator<Entry<K, V>>() {
+			private final int expectedModCount = modCount;
+			private final Deque<Node<K, V>> pending = new ArrayDeque<>();
+
+			{
+				if (root != null) {
+					pending.push(root);
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return !pending.isEmpty();
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (pending.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				Node<K, V> node = pending.pop();
+				if (node.sibling != null && node != root) {
+					pending.push(node.sibling);
+				}
+				if (node.child != null) {
+					pending.push(node.child);
+				}
+				return node;
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (Entry<K, V> e : this) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(e);
+		}
+		return sb.append("]").toString();
+	}
+
+	private Node<K, V> validate(Handle<K, V> h) {
+		if (!contains(h)) {
+			throw new IllegalArgumentException("handle does not belong to this queue");
+		}
+		return (Node<K, V>) h;
+	}
+
+	// Follows the forwarding chain of an owner, halving it on the way
+	private static Owner find(Owner o) {
+		while (o.forward != null) {
+			if (o.forward.forward != null) {
+				o.forward = o.forward.forward;
+			}
+			o = o.forward;
+		}
+		return o;
+	}
+
+	/**
+	 * Quita el nodo del montículo y vuelve a enlazar sus hijos, dejando el nodo
+	 * sin padre, hermanos ni hijos.
+	 */
+	private void detach(Node<K, V> node) {
+		Node<K, V> children = mergePairs(node.child);
+		node.child = null;
+		if (node == root) {
+			root = children;
+		} else {
+			cut(node);
+			root = link(root, children);
+		}
+	}
+
+	// Unlinks the node (and its subtree) from its parent and siblings
+	private void cut(Node<K, V> node) {
+		if (node.prev.child == node) {
+			node.prev.child = node.sibling;
+		} else {
+			node.prev.sibling = node.sibling;
+		}
+		if (node.sibling != null) {
+			node.sibling.prev = node.prev;
+		}
+		node.prev = null;
+		node.sibling = null;
+	}
+
+	/**
+	 * Enlaza dos árboles sin hermanos: el de mayor clave pasa a ser el primer
+	 * hijo del otro. Devuelve la raíz resultante.
+	 */
+	private Node<K, V> link(Node<K, V> a, Node<K, V> b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (b.key.compareTo(a.key) < 0) {
+			Node<K, V> tmp = a;
+			a = b;
+			b = tmp;
+		}
+		b.sibling = a.child;
+		if (a.child != null) {
+			a.child.prev = b;
+		}
+		b.prev = a;
+		a.child = b;
+		return a;
+	}
+
+	/**
+	 * Empareja en dos pasadas la lista de hermanos que empieza en first y
+	 * devuelve el árbol resultante. La primera pasada enlaza los árboles de dos
+	 * en dos y apila los resultados usando el campo sibling; la segunda los
+	 * enlaza desde el último hasta el primero.
+	 */
+	private Node<K, V> mergePairs(Node<K, V> first) {
+		Node<K, V> stack = null;
+		while (first != null) {
+			Node<K, V> a = first;
+			Node<K, V> b = a.sibling;
+			first = b == null ? null : b.sibling;
+			a.sibling = null;
+			a.prev = null;
+			if (b != null) {
+				b.sibling = null;
+				b.prev = null;
+			}
+			Node<K, V> pair = link(a, b);
+			pair.sibling = stack;
+			stack = pair;
+		}
+		Node<K, V> result = null;
+		while (stack != null) {
+			Node<K, V> next = stack.sibling;
+			stack.sibling = null;
+			result = link(result, stack);
+			stack = next;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,148 @@
+package aed.treepriorityqueue;
+
+import java.util.Random;
+import es.upm.aedlib.Entry;
+
+/**
+ * Compara {@link LongPriorityQueue} e {@link IntPriorityQueue}, usadas con
+ * sus métodos de claves primitivas, con {@link ArrayPriorityQueue} y
+ * {@link TreePriorityQueue} con claves Long e Integer. La carga es el modelo
+ * hold de una simulación de eventos: se llena la cola con n claves al azar y
+ * después, un millón de veces, se saca el mínimo y se vuelve a meter su valor
+ * con la clave aumentada en un incremento al azar menor que n.
+ *
+ * Los incrementos y los valores se crean antes de medir, así que los bytes
+ * por operación son los que reservan la cola y las claves que se encajonan.
+ * Las colas primitivas no deberían reservar nada salvo al crecer sus arrays.
+ * Los tamaños n se pueden dar como argumentos (por defecto 1000 y 100000).
+ */
+public class PrimitiveBenchmark {
+
+	private static final int HOLD_OPERATIONS = 1_000_000;
+
+	// Keeps results alive so the JIT cannot drop the work
+	static volatile long sink;
+
+	public static void main(String[] args) {
+		int[] sizes = { 1_000, 100_000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		for (final int n : sizes) {
+			Random random = new Random(n);
+			final int[] initial = new int[n];
+			final String[] values = new String[n];
+			for (int i = 0; i < n; i++) {
+				initial[i] = random.nextInt(n);
+				values[i] = "v" + i;
+			}
+			final int[] increments = new int[HOLD_OPERATIONS];
+			for (int i = 0; i < HOLD_OPERATIONS; i++) {
+				increments[i] = random.nextInt(n);
+			}
+
+			long expected = holdLong(new LongPriorityQueue<String>(), initial, values, increments);
+			check("ArrayPriorityQueue<Long>", expected,
+					holdBoxedLong(new ArrayPriorityQueue<Long, String>(), initial, values, increments));
+			check("IntPriorityQueue", expected, holdInt(new IntPriorityQueue<String>(), initial, values, increments));
+
+			long operations = n + 2L * HOLD_OPERATIONS;
+			System.out.println("n = " + n + ", llenar y hold (" + operations + " operaciones)");
+			Benchmark.run("LongPriorityQueue", operations,
+					() -> sink = holdLong(new LongPriorityQueue<String>(), initial, values, increments));
+			Benchmark.run("ArrayPriorityQueue<Long>", operations,
+					() -> sink = holdBoxedLong(new ArrayPriorityQueue<Long, String>(), initial, values, increments));
+			Benchmark.run("TreePriorityQueue<Long>", operations,
+					() -> sink = holdBoxedLong(new TreePriorityQueue<Long, String>(), initial, values, increments));
+			Benchmark.run("IntPriorityQueue", operations,
+					() -> sink = holdInt(new IntPriorityQueue<String>(), initial, values, increments));
+			Benchmark.run("ArrayPriorityQueue<Integer>", operations,
+					() -> sink = holdBoxedInt(new ArrayPriorityQueue<Integer, String>(), initial, values, increments));
+		}
+	}
+
+	private static void check(String name, long expected, long actual) {
+		if (actual != expected) {
+			throw new IllegalStateException(name + " gives " + actual + ", LongPriorityQueue " + expected);
+		}
+	}
+
+	// Each hold returns the sum of the keys dequeued, to check that all queues agree
+
+	private static long holdLong(LongPriorityQueue<String> queue, int[] initial, String[] values, int[] increments) {
+		for (int i = 0; i < initial.length; i++) {
+			queue.enqueue((long) initial[i], values[i]);
+		}
+		long sum = 0;
+		try {
+			for (int increment : increments) {
+				long k = queue.firstKey();
+				String v = queue.dequeueValue();
+				sum += k;
+				queue.enqueue(k + increment, v);
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("hold needs a non-empty queue", e);
+		}
+		return sum;
+	}
+
+	private static long holdBoxedLong(PriorityQueue<Long, String> queue, int[] initial, String[] values,
+			int[] increments) {
+		for (int i = 0; i < initial.length; i++) {
+			queue.enqueue((long) initial[i], values[i]);
+		}
+		long sum = 0;
+		try {
+			for (int increment : increments) {
+				Entry<Long, String> min = queue.dequeue();
+				long k = min.getKey();
+				sum += k;
+				queue.enqueue(k + increment, min.getValue());
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("hold needs a non-empty queue", e);
+		}
+		return sum;
+	}
+
+	private static long holdInt(IntPriorityQueue<String> queue, int[] initial, String[] values, int[] increments) {
+		for (int i = 0; i < initial.length; i++) {
+			queue.enqueue(initial[i], values[i]);
+		}
+		long sum = 0;
+		try {
+			for (int increment : increments) {
+				int k = queue.firstKey();
+				String v = queue.dequeueValue();
+				sum += k;
+				queue.enqueue(k + increment, v);
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("hold needs a non-empty queue", e);
+		}
+		return sum;
+	}
+
+	private static long holdBoxedInt(PriorityQueue<Integer, String> queue, int[] initial, String[] values,
+			int[] increments) {
+		for (int i = 0; i < initial.length; i++) {
+			queue.enqueue(initial[i], values[i]);
+		}
+		long sum = 0;
+		try {
+			for (int increment : increments) {
+				Entry<Integer, String> min = queue.dequeue();
+				int k = min.getKey();
+				sum += k;
+				queue.enqueue(k + increment, min.getValue());
+			}
+		} catch (EmptyPriorityQueueException e) {
+			throw new IllegalStateException("hold needs a non-empty queue", e);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,27 @@
+package aed.treepriorityqueue;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts values of type T to and from bytes, for the queues that keep
+ * entries outside the Java heap.
+ */
+public interface Serializer<T> {
+
+  /**
+   * Returns the number of bytes that write will use for the value.
+   */
+  public int size(T value);
+
+  /**
+   * Writes the value at the current position of the buffer, advancing it
+   * size(value) bytes.
+   */
+  public void write(T value, ByteBuffer out);
+
+  /**
+   * Reads a value written by write from the current position of the buffer,
+   * advancing it past the value.
+   */
+  public T read(ByteBuffer in);
+}
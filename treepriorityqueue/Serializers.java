@@ -0,0 +1,87 @@
+package aed.treepriorityqueue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializadores para los tipos de clave y valor más comunes.
+ */
+public class Serializers {
+
+	private Serializers() {
+	}
+
+	/**
+	 * Un Long en 8 bytes big-endian. No admite null.
+	 */
+	public static final Serializer<Long> LONG = new Serializer<Long>() {
+		@Override
+		public int size(Long value) {
+			return Long.BYTES;
+		}
+
+		@Override
+		public void write(Long value, ByteBuffer out) {
+			out.putLong(value);
+		}
+
+		@Override
+		public Long read(ByteBuffer in) {
+			return in.getLong();
+		}
+	};
+
+	/**
+	 * Un Integer en 4 bytes big-endian. No admite null.
+	 */
+	public static final Serializer<Integer> INTEGER = new Serializer<Integer>() {
+		@Override
+		public int size(Integer value) {
+			return Integer.BYTES;
+		}
+
+		@Override
+		public void write(Integer value, ByteBuffer out) {
+			out.putInt(value);
+		}
+
+		@Override
+		public Integer read(ByteBuffer in) {
+			return in.getInt();
+		}
+	};
+
+	/**
+	 * Un String como un int con la longitud en bytes (-1 para null) seguido de
+	 * sus bytes UTF-8.
+	 */
+	public static final Serializer<String> STRING = new Serializer<String>() {
+		@Override
+		public int size(String value) {
+			return Integer.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+		}
+
+		@Override
+		public void write(String value, ByteBuffer out) {
+			if (value == null) {
+				out.putInt(-1);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.putInt(bytes.length);
+			out.put(bytes);
+		}
+
+		@Override
+		public String read(ByteBuffer in) {
+			int length = in.getInt();
+			if (length < 0) {
+				return null;
+			}
+			byte[] bytes = new byte[length];
+			in.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+}
@@ -0,0 +1,125 @@
+package aed.treepriorityqueue;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import es.upm.aedlib.Entry;
+
+/**
+ * Cola de prioridad concurrente y estricta, sobre una lista de saltos sin
+ * cerrojos (ConcurrentSkipListSet). Varios hilos pueden usarla a la vez sin
+ * ningún cerrojo externo.
+ *
+ * dequeue es linealizable: cada llamada quita exactamente el mínimo de la
+ * cola en algún instante entre su inicio y su fin. Las claves repetidas se
+ * desempatan por orden de llegada, con un número de secuencia.
+ *
+ * size es exacto cuando no hay operaciones en curso; el iterador es
+ * débilmente consistente y recorre los elementos en orden de clave.
+ */
+public class SkipListPriorityQueue<K extends Comparable<K>, V> implements PriorityQueue<K, V> {
+
+	private final ConcurrentSkipListSet<Node<K, V>> set;
+	private final AtomicLong nextSeq;
+	private final AtomicInteger size;
+
+	// Entry with the sequence number used to tell equal keys apart
+	private static class Node<K, V> implements Entry<K, V> {
+		private final K key;
+		private final V value;
+		private final long seq;
+
+		Node(K key, V value, long seq) {
+			this.key = key;
+			this.value = value;
+			this.seq = seq;
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + key + "," + value + ")";
+		}
+	}
+
+	public SkipListPriorityQueue() {
+		set = new ConcurrentSkipListSet<>(new Comparator<Node<K, V>>() {
+			@Override
+			public int compare(Node<K, V> n1, Node<K, V> n2) {
+				int c = n1.key.compareTo(n2.key);
+				return c != 0 ? c : Long.compare(n1.seq, n2.seq);
+			}
+		});
+		nextSeq = new AtomicLong();
+		size = new AtomicInteger();
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return set.isEmpty();
+	}
+
+	@Override
+	public Entry<K, V> first() throws EmptyPriorityQueueException {
+		try {
+			return set.first();
+		} catch (NoSuchElementException e) {
+			throw new EmptyPriorityQueueException();
+		}
+	}
+
+	@Override
+	public void enqueue(K k, V v) {
+		set.add(new Node<>(k, v, nextSeq.getAndIncrement()));
+		size.incrementAndGet();
+	}
+
+	@Override
+	public Entry<K, V> dequeue() throws EmptyPriorityQueueException {
+		Node<K, V> min = set.pollFirst();
+		if (min == null) {
+			throw new EmptyPriorityQueueException();
+		}
+		size.decrementAndGet();
+		return min;
+	}
+
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		final Iterator<Node<K, V>> it = set.iterator();
+		return new Iterator<Entry<K, V>>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				return it.next();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return set.toString();
+	}
+
+}
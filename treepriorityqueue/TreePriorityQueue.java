@@ -1,8 +1,10 @@
 package aed.treepriorityqueue;
 
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import es.upm.aedlib.Position;
 import es.upm.aedlib.Entry;
 import es.upm.aedlib.EntryImpl;
@@ -13,11 +15,13 @@ public class TreePriorityQueue<K extends Comparable<K>, V> implements PriorityQu
 	// Private fields for the binary tree and last position
 	private BinaryTree<Entry<K, V>> t; // Binary tree structure to store the entries
 	private Position<Entry<K, V>> lastPos; // Tracks the last inserted position in the tree
+	private int modCount; // Counts enqueues and dequeues, for the sorted iterator
 
 	// Constructor: Initializes the binary tree and sets the last position to null
 	public TreePriorityQueue() {
 		t = new LinkedBinaryTree<>(); // Create an empty binary tree
 		lastPos = null; // No nodes initially, so lastPos is set to null
+		modCount = 0;
 	}
 
 	// Returns the number of elements in the priority queue
@@ -55,6 +59,7 @@ public class TreePriorityQueue<K extends Comparable<K>, V> implements PriorityQu
 	@Override
 	public void enqueue(K k, V v) {
 		Entry<K, V> newEntry = new EntryImpl<>(k, v);
+		modCount++;
 
 		if (isEmpty()) {
 			// Initialize root and lastPos for the first entry
@@ -130,6 +135,8 @@ public class TreePriorityQueue<K extends Comparable<K>, V> implements PriorityQu
 			throw new EmptyPriorityQueueException();
 		}
 
+		modCount++;
+
 		// Recuperamos la raíz del árbol (que contiene el elemento con la clave mínima)
 		Position<Entry<K, V>> root = t.root();
 		// Almacenamos el elemento mínimo (de la raíz) que vamos a devolver
@@ -178,6 +185,61 @@ public class TreePriorityQueue<K extends Comparable<K>, V> implements PriorityQu
 		return entries.iterator();
 	}
 
+	/**
+	 * Devuelve un iterador que recorre los elementos en orden de clave sin
+	 * modificar la cola. Mantiene un montículo auxiliar (la "frontera") con los
+	 * nodos candidatos: al principio solo la raíz, y cada vez que se devuelve un
+	 * nodo se añaden sus hijos. Como cada hijo tiene clave mayor o igual que su
+	 * padre, el mínimo de la frontera es siempre el siguiente en orden.
+	 *
+	 * Obtener los k primeros cuesta O(k log k), independientemente del tamaño de
+	 * la cola. Si la cola se modifica durante el recorrido, next lanza
+	 * ConcurrentModificationException.
+	 *
+	 * @return Un iterador sobre los elementos en orden creciente de clave.
+	 */
+	public Iterator<Entry<K, V>> sortedIterator() {
+		return new Iterator<Entry<K, V>>() {
+			private final int expectedModCount = modCount;
+			private final java.util.PriorityQueue<Position<Entry<K, V>>> frontier = new java.util.PriorityQueue<>(
+					new Comparator<Position<Entry<K, V>>>() {
+						@Override
+						public int compare(Position<Entry<K, V>> p1, Position<Entry<K, V>> p2) {
+							return p1.element().getKey().compareTo(p2.element().getKey());
+						}
+					});
+
+			{
+				if (!t.isEmpty()) {
+					frontier.add(t.root());
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return !frontier.isEmpty();
+			}
+
+			@Override
+			public Entry<K, V> next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (frontier.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				Position<Entry<K, V>> pos = frontier.poll();
+				if (t.hasLeft(pos)) {
+					frontier.add(t.left(pos));
+				}
+				if (t.hasRight(pos)) {
+					frontier.add(t.right(pos));
+				}
+				return pos.element();
+			}
+		};
+	}
+
 	// Recursive helper method for traversal
 	private void populateEntries(Position<Entry<K, V>> pos, LinkedList<Entry<K, V>> entries) {
 		if (pos == null)
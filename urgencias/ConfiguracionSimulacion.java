@@ -0,0 +1,141 @@
+package aed.urgencias;
+
+/**
+ * Parametros de la carga generada por SimuladorUrgencias. Los tiempos estan
+ * en las mismas unidades que la hora de Urgencias.
+ */
+public class ConfiguracionSimulacion {
+
+    // Semilla del generador aleatorio: la misma semilla da la misma carga
+    private long semilla = 1;
+    // Hora final de la simulacion
+    private int duracion = 100000;
+    // Tiempo medio entre llegadas (distribucion exponencial)
+    private double mediaEntreLlegadas = 1.0;
+    // Peso relativo de cada prioridad en las llegadas (la posicion es la prioridad)
+    private double[] pesosPrioridad = { 1, 2, 4, 4, 2 };
+    // Probabilidad de que un paciente cambie de prioridad, y tiempo medio hasta el cambio
+    private double probabilidadCambio = 0.1;
+    private double mediaHastaCambio = 50;
+    // Probabilidad de que un paciente se vaya sin ser atendido, y tiempo medio hasta irse
+    private double probabilidadSalida = 0.05;
+    private double mediaHastaSalida = 200;
+    // Cada cuanto se atiende a un paciente (un medico libre)
+    private int intervaloAtencion = 1;
+    // Cada cuanto se llama a aumentaPrioridad, y con que tiempo maximo de espera
+    private int intervaloEnvejecimiento = 100;
+    private int maxTiempoEspera = 300;
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public void setSemilla(long semilla) {
+        this.semilla = semilla;
+    }
+
+    public int getDuracion() {
+        return duracion;
+    }
+
+    public void setDuracion(int duracion) {
+        this.duracion = positivo(duracion, "duracion");
+    }
+
+    public double getMediaEntreLlegadas() {
+        return mediaEntreLlegadas;
+    }
+
+    public void setMediaEntreLlegadas(double media) {
+        this.mediaEntreLlegadas = positivo(media, "mediaEntreLlegadas");
+    }
+
+    public double[] getPesosPrioridad() {
+        return pesosPrioridad.clone();
+    }
+
+    public void setPesosPrioridad(double... pesos) {
+        if (pesos.length == 0) {
+            throw new IllegalArgumentException("Hace falta al menos una prioridad");
+        }
+        this.pesosPrioridad = pesos.clone();
+    }
+
+    public double getProbabilidadCambio() {
+        return probabilidadCambio;
+    }
+
+    public void setProbabilidadCambio(double p) {
+        this.probabilidadCambio = probabilidad(p);
+    }
+
+    public double getMediaHastaCambio() {
+        return mediaHastaCambio;
+    }
+
+    public void setMediaHastaCambio(double media) {
+        this.mediaHastaCambio = positivo(media, "mediaHastaCambio");
+    }
+
+    public double getProbabilidadSalida() {
+        return probabilidadSalida;
+    }
+
+    public void setProbabilidadSalida(double p) {
+        this.probabilidadSalida = probabilidad(p);
+    }
+
+    public double getMediaHastaSalida() {
+        return mediaHastaSalida;
+    }
+
+    public void setMediaHastaSalida(double media) {
+        this.mediaHastaSalida = positivo(media, "mediaHastaSalida");
+    }
+
+    public int getIntervaloAtencion() {
+        return intervaloAtencion;
+    }
+
+    public void setIntervaloAtencion(int intervalo) {
+        this.intervaloAtencion = positivo(intervalo, "intervaloAtencion");
+    }
+
+    public int getIntervaloEnvejecimiento() {
+        return intervaloEnvejecimiento;
+    }
+
+    public void setIntervaloEnvejecimiento(int intervalo) {
+        this.intervaloEnvejecimiento = positivo(intervalo, "intervaloEnvejecimiento");
+    }
+
+    public int getMaxTiempoEspera() {
+        return maxTiempoEspera;
+    }
+
+    public void setMaxTiempoEspera(int max) {
+        this.maxTiempoEspera = max;
+    }
+
+    private static int positivo(int valor, String nombre) {
+        if (valor <= 0) {
+            throw new IllegalArgumentException(nombre + "=" + valor);
+        }
+        return valor;
+    }
+
+    private static double positivo(double valor, String nombre) {
+        if (!(valor > 0)) {
+            throw new IllegalArgumentException(nombre + "=" + valor);
+        }
+        return valor;
+    }
+
+    private static double probabilidad(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("probabilidad=" + p);
+        }
+        return p;
+    }
+
+}
@@ -0,0 +1,62 @@
+package aed.urgencias;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estadisticas de los tiempos de espera de los pacientes atendidos: un
+ * HistogramaEspera global y otro por cada prioridad (la que tenia el paciente
+ * al ser atendido). Registrar es O(1) y sin cerrojos; las consultas trabajan
+ * sobre instantaneas y no bloquean la atencion.
+ */
+public class EstadisticasEspera {
+
+    private final HistogramaEspera global;
+    private final ConcurrentHashMap<Integer, HistogramaEspera> porPrioridad;
+
+    public EstadisticasEspera() {
+        this.global = new HistogramaEspera();
+        this.porPrioridad = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registra la espera de un paciente atendido con la prioridad dada.
+     */
+    public void registrar(int prioridad, long espera) {
+        HistogramaEspera histograma = porPrioridad.get(prioridad);
+        if (histograma == null) {
+            histograma = porPrioridad.computeIfAbsent(prioridad, p -> new HistogramaEspera());
+        }
+        histograma.registrar(espera);
+        global.registrar(espera);
+    }
+
+    /**
+     * Devuelve una instantanea de todas las esperas.
+     */
+    public InstantaneaEspera instantanea() {
+        return global.instantanea();
+    }
+
+    /**
+     * Devuelve una instantanea de las esperas de una prioridad, o null si no
+     * se ha atendido a nadie con esa prioridad.
+     */
+    public InstantaneaEspera instantanea(int prioridad) {
+        HistogramaEspera histograma = porPrioridad.get(prioridad);
+        return histograma == null ? null : histograma.instantanea();
+    }
+
+    /**
+     * Devuelve una instantanea por prioridad, ordenadas por prioridad.
+     */
+    public SortedMap<Integer, InstantaneaEspera> instantaneasPorPrioridad() {
+        SortedMap<Integer, InstantaneaEspera> resultado = new TreeMap<>();
+        for (Integer prioridad : porPrioridad.keySet()) {
+            resultado.put(prioridad, porPrioridad.get(prioridad).instantanea());
+        }
+        return resultado;
+    }
+
+}
@@ -0,0 +1,90 @@
+package aed.urgencias;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un evento de una simulacion de urgencias: una operacion sobre Urgencias en
+ * una hora dada. Cada evento tiene ademas un numero de secuencia, el orden en
+ * que se creo, con el que SimuladorUrgencias desempata los eventos de la
+ * misma hora.
+ */
+public class EventoSimulacion {
+
+    /**
+     * Los tipos de evento; cada uno corresponde a una operacion de Urgencias.
+     */
+    public enum Tipo {
+        LLEGADA, CAMBIO_PRIORIDAD, SALIDA, ATENCION, ENVEJECIMIENTO
+    }
+
+    private final int hora;
+    private final Tipo tipo;
+    // DNI del paciente (null en ATENCION y ENVEJECIMIENTO)
+    private final String DNI;
+    // Prioridad en LLEGADA y CAMBIO_PRIORIDAD, maxTiempoEspera en ENVEJECIMIENTO
+    private final int valor;
+    private final long secuencia;
+
+    // Siguiente numero de secuencia
+    private static final AtomicLong SECUENCIAS = new AtomicLong();
+
+    public EventoSimulacion(int hora, Tipo tipo, String DNI, int valor) {
+        this.hora = hora;
+        this.tipo = tipo;
+        this.DNI = DNI;
+        this.valor = valor;
+        this.secuencia = SECUENCIAS.getAndIncrement();
+    }
+
+    public int getHora() {
+        return hora;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public String getDNI() {
+        return DNI;
+    }
+
+    /**
+     * Devuelve la prioridad (LLEGADA, CAMBIO_PRIORIDAD) o el tiempo maximo de
+     * espera (ENVEJECIMIENTO).
+     */
+    public int getValor() {
+        return valor;
+    }
+
+    /**
+     * Devuelve el numero de secuencia: los eventos creados antes tienen numeros
+     * menores.
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Devuelve la linea de traza: hora,TIPO,DNI,valor.
+     */
+    @Override
+    public String toString() {
+        return hora + "," + tipo + "," + (DNI == null ? "" : DNI) + "," + valor;
+    }
+
+    /**
+     * Lee una linea de traza con el formato de toString().
+     *
+     * @throws IllegalArgumentException si la linea es incorrecta
+     */
+    public static EventoSimulacion parse(String linea) {
+        String[] campos = linea.split(",", -1);
+        if (campos.length != 4) {
+            throw new IllegalArgumentException("Linea de traza incorrecta: " + linea);
+        }
+        String DNI = campos[2].trim();
+        return new EventoSimulacion(Integer.parseInt(campos[0].trim()), Tipo.valueOf(campos[1].trim()),
+                DNI.isEmpty() ? null : DNI, Integer.parseInt(campos[3].trim()));
+    }
+
+}
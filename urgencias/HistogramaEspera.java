@@ -0,0 +1,83 @@
+package aed.urgencias;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de tiempos de espera al estilo HDR: los valores pequeños tienen
+ * una casilla cada uno y los grandes se agrupan en casillas de tamaño
+ * creciente (log-lineal), con un error relativo menor que 1/64. La memoria es
+ * fija (unas 3700 casillas) sea cual sea el numero de valores registrados.
+ *
+ * Registrar un valor es O(1) y no usa cerrojos, asi que se puede llamar desde
+ * el camino de atencion; las lecturas se hacen sobre una InstantaneaEspera.
+ */
+public class HistogramaEspera {
+
+    // Bits de las subcasillas: 2^7 = 128 valores exactos y 64 subcasillas por potencia de 2
+    static final int BITS = 7;
+    static final int SUBCASILLAS = 1 << BITS;
+    static final int MITAD = SUBCASILLAS >> 1;
+    static final int NUM_CASILLAS = SUBCASILLAS + (63 - BITS) * MITAD;
+
+    private final AtomicLongArray casillas;
+    private final LongAdder total;
+    private final LongAccumulator minimo;
+    private final LongAccumulator maximo;
+
+    public HistogramaEspera() {
+        this.casillas = new AtomicLongArray(NUM_CASILLAS);
+        this.total = new LongAdder();
+        this.minimo = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        this.maximo = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    }
+
+    /**
+     * Registra un tiempo de espera. Los valores negativos cuentan como 0.
+     */
+    public void registrar(long espera) {
+        long valor = Math.max(0, espera);
+        casillas.incrementAndGet(casilla(valor));
+        total.add(valor);
+        minimo.accumulate(valor);
+        maximo.accumulate(valor);
+    }
+
+    /**
+     * Devuelve una copia de los datos registrados hasta ahora.
+     */
+    public InstantaneaEspera instantanea() {
+        long[] copia = new long[NUM_CASILLAS];
+        for (int i = 0; i < NUM_CASILLAS; i++) {
+            copia[i] = casillas.get(i);
+        }
+        return new InstantaneaEspera(copia, total.sum(), minimo.get(), maximo.get());
+    }
+
+    /**
+     * Devuelve la casilla de un valor no negativo.
+     */
+    static int casilla(long valor) {
+        if (valor < SUBCASILLAS) {
+            return (int) valor;
+        }
+        int bitMasAlto = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = bitMasAlto - BITS + 1;
+        int sub = (int) (valor >>> desplazamiento); // en [MITAD, SUBCASILLAS)
+        return SUBCASILLAS + (desplazamiento - 1) * MITAD + (sub - MITAD);
+    }
+
+    /**
+     * Devuelve el mayor valor que cae en la casilla.
+     */
+    static long maximoDeCasilla(int casilla) {
+        if (casilla < SUBCASILLAS) {
+            return casilla;
+        }
+        int desplazamiento = (casilla - SUBCASILLAS) / MITAD + 1;
+        long sub = (casilla - SUBCASILLAS) % MITAD + MITAD;
+        return ((sub + 1) << desplazamiento) - 1;
+    }
+
+}
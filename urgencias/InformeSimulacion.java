@@ -0,0 +1,101 @@
+package aed.urgencias;
+
+import es.upm.aedlib.Pair;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Resultado de ejecutar una simulacion sobre una implementacion de Urgencias:
+ * numero de operaciones, latencias por tipo de evento, rendimiento y la
+ * informacionEspera final.
+ */
+public class InformeSimulacion {
+
+    private final String implementacion;
+    private final EnumMap<EventoSimulacion.Tipo, Long> operaciones;
+    private final EnumMap<EventoSimulacion.Tipo, Long> fallidas;
+    private final EnumMap<EventoSimulacion.Tipo, InstantaneaEspera> latencias;
+    private final long nanos;
+    private final Pair<Integer, Integer> informacionEspera;
+
+    InformeSimulacion(String implementacion, EnumMap<EventoSimulacion.Tipo, Long> operaciones,
+            EnumMap<EventoSimulacion.Tipo, Long> fallidas, EnumMap<EventoSimulacion.Tipo, InstantaneaEspera> latencias,
+            long nanos, Pair<Integer, Integer> informacionEspera) {
+        this.implementacion = implementacion;
+        this.operaciones = operaciones;
+        this.fallidas = fallidas;
+        this.latencias = latencias;
+        this.nanos = nanos;
+        this.informacionEspera = informacionEspera;
+    }
+
+    public String getImplementacion() {
+        return implementacion;
+    }
+
+    /**
+     * Devuelve el numero de operaciones de un tipo.
+     */
+    public long getOperaciones(EventoSimulacion.Tipo tipo) {
+        return operaciones.getOrDefault(tipo, 0L);
+    }
+
+    /**
+     * Devuelve el numero de operaciones de un tipo que lanzaron excepcion (por
+     * ejemplo cambiar la prioridad de un paciente ya atendido) o, en ATENCION,
+     * que no encontraron a nadie.
+     */
+    public long getFallidas(EventoSimulacion.Tipo tipo) {
+        return fallidas.getOrDefault(tipo, 0L);
+    }
+
+    /**
+     * Devuelve las latencias en nanosegundos de las operaciones de un tipo, o
+     * null si no hubo ninguna.
+     */
+    public InstantaneaEspera getLatencias(EventoSimulacion.Tipo tipo) {
+        return latencias.get(tipo);
+    }
+
+    /**
+     * Devuelve el tiempo total de las operaciones en nanosegundos.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Devuelve el numero de operaciones por segundo.
+     */
+    public double operacionesPorSegundo() {
+        long total = 0;
+        for (long n : operaciones.values()) {
+            total += n;
+        }
+        return nanos == 0 ? 0 : total * 1e9 / nanos;
+    }
+
+    /**
+     * Devuelve la informacionEspera de las urgencias al terminar.
+     */
+    public Pair<Integer, Integer> getInformacionEspera() {
+        return informacionEspera;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(implementacion).append(": ").append(String.format("%.0f", operacionesPorSegundo()))
+                .append(" ops/s, informacionEspera=");
+        s.append(informacionEspera == null ? "null"
+                : "(" + informacionEspera.getLeft() + "," + informacionEspera.getRight() + ")");
+        s.append("\n");
+        for (Map.Entry<EventoSimulacion.Tipo, InstantaneaEspera> e : latencias.entrySet()) {
+            InstantaneaEspera l = e.getValue();
+            s.append(String.format("  %-16s n=%-9d fallidas=%-8d p50=%dns p95=%dns p99=%dns max=%dns%n", e.getKey(),
+                    getOperaciones(e.getKey()), getFallidas(e.getKey()), l.p50(), l.p95(), l.p99(), l.getMaximo()));
+        }
+        return s.toString();
+    }
+
+}
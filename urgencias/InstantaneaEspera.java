@@ -0,0 +1,98 @@
+package aed.urgencias;
+
+/**
+ * Copia inmutable de un HistogramaEspera en un instante. Los percentiles se
+ * calculan recorriendo un numero fijo de casillas, asi que cuestan O(1) con
+ * respecto al numero de esperas registradas.
+ */
+public class InstantaneaEspera {
+
+    private final long[] casillas;
+    private final long numero;
+    private final long total;
+    private final long minimo;
+    private final long maximo;
+
+    InstantaneaEspera(long[] casillas, long total, long minimo, long maximo) {
+        long numero = 0;
+        for (long cuenta : casillas) {
+            numero += cuenta;
+        }
+        this.casillas = casillas;
+        this.numero = numero;
+        this.total = total;
+        this.minimo = numero == 0 ? 0 : minimo;
+        this.maximo = numero == 0 ? 0 : maximo;
+    }
+
+    /**
+     * Devuelve el numero de esperas registradas.
+     */
+    public long getNumero() {
+        return numero;
+    }
+
+    /**
+     * Devuelve la suma (de 64 bits) de las esperas registradas.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMinimo() {
+        return minimo;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Devuelve la media de las esperas, o 0 si no hay ninguna.
+     */
+    public double getMedia() {
+        return numero == 0 ? 0 : (double) total / numero;
+    }
+
+    /**
+     * Devuelve el percentil p (entre 0 y 100): una cota superior, con error
+     * relativo menor que 1/64, de la espera que no supera el p% de los
+     * pacientes. Devuelve 0 si no hay esperas registradas.
+     */
+    public long percentil(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("p=" + p);
+        }
+        if (numero == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(p / 100 * numero));
+        long acumulado = 0;
+        for (int i = 0; i < casillas.length; i++) {
+            acumulado += casillas[i];
+            if (acumulado >= objetivo) {
+                return Math.min(HistogramaEspera.maximoDeCasilla(i), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    public long p50() {
+        return percentil(50);
+    }
+
+    public long p95() {
+        return percentil(95);
+    }
+
+    public long p99() {
+        return percentil(99);
+    }
+
+    @Override
+    public String toString() {
+        return "<n=" + numero + ",media=" + String.format("%.1f", getMedia()) + ",p50=" + p50() + ",p95=" + p95()
+                + ",p99=" + p99() + ",max=" + maximo + ">";
+    }
+
+}
@@ -0,0 +1,106 @@
+package aed.urgencias;
+
+import java.util.Random;
+
+/**
+ * Compara la memoria y el rendimiento de UrgenciasCompacta con los de
+ * UrgenciasAED con muchos pacientes esperando (por defecto un millon, o el
+ * numero dado como argumento).
+ *
+ * La memoria es la diferencia de heap usado, despues de pedir varias veces
+ * al recolector que limpie, entre antes y despues de admitir a todos los
+ * pacientes. Los DNIs se crean antes y se comparten, asi que no cuentan: es
+ * lo que cuesta la estructura de cada implementacion.
+ *
+ * El rendimiento se mide con un millon de pasos: admitir un paciente nuevo,
+ * atender al primero y cambiar la prioridad de un paciente al azar si sigue
+ * esperando. Las dos implementaciones hacen los mismos pasos y se comprueba
+ * que atienden a los pacientes en el mismo orden.
+ */
+public class MedicionCompacta {
+
+    private static final int PASOS = 1_000_000;
+    private static final int PRIORIDADES = 5;
+    private static final int EJECUCIONES = 3;
+
+    // Crea unas urgencias vacias de la implementacion que se mide
+    private interface Fabrica {
+        Urgencias crear();
+    }
+
+    public static void main(String[] args) throws PacienteExisteException, PacienteNoExisteException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random aleatorio = new Random(n);
+        String[] DNIs = new String[n + PASOS];
+        int[] prioridades = new int[n + PASOS];
+        int[] cambios = new int[PASOS];
+        for (int i = 0; i < DNIs.length; i++) {
+            DNIs[i] = "P" + i;
+            prioridades[i] = aleatorio.nextInt(PRIORIDADES);
+        }
+        for (int i = 0; i < PASOS; i++) {
+            cambios[i] = aleatorio.nextInt(n + i + 1);
+        }
+
+        String[] nombres = { "UrgenciasAED", "UrgenciasCompacta" };
+        Fabrica[] fabricas = { UrgenciasAED::new, UrgenciasCompacta::new };
+        long[] huellas = new long[fabricas.length];
+        System.out.println(n + " pacientes esperando, " + PASOS + " pasos");
+        for (int f = 0; f < fabricas.length; f++) {
+            long antes = memoriaUsada();
+            Urgencias urgencias = llenar(fabricas[f].crear(), DNIs, prioridades, n);
+            long despues = memoriaUsada();
+
+            long mejor = Long.MAX_VALUE;
+            for (int e = 0; e < EJECUCIONES; e++) {
+                if (e > 0) {
+                    urgencias = llenar(fabricas[f].crear(), DNIs, prioridades, n);
+                }
+                long inicio = System.nanoTime();
+                huellas[f] = pasos(urgencias, DNIs, prioridades, cambios, n);
+                mejor = Math.min(mejor, System.nanoTime() - inicio);
+            }
+            System.out.printf("  %-18s %6.1f MB (%5.1f bytes por paciente), %6.0f ns por paso%n", nombres[f],
+                    (despues - antes) / 1e6, (double) (despues - antes) / n, (double) mejor / PASOS);
+        }
+        if (huellas[0] != huellas[1]) {
+            throw new IllegalStateException("UrgenciasCompacta atiende en otro orden que UrgenciasAED");
+        }
+    }
+
+    private static Urgencias llenar(Urgencias urgencias, String[] DNIs, int[] prioridades, int n)
+            throws PacienteExisteException {
+        // Horas de admision distintas para que no haya empates en el orden
+        for (int i = 0; i < n; i++) {
+            urgencias.admitirPaciente(DNIs[i], prioridades[i], i);
+        }
+        return urgencias;
+    }
+
+    // Devuelve una huella del orden en que se ha atendido a los pacientes
+    private static long pasos(Urgencias urgencias, String[] DNIs, int[] prioridades, int[] cambios, int n)
+            throws PacienteExisteException, PacienteNoExisteException {
+        long huella = 0;
+        for (int i = 0; i < PASOS; i++) {
+            int hora = n + i;
+            urgencias.admitirPaciente(DNIs[hora], prioridades[hora], hora);
+            huella = 31 * huella + urgencias.atenderPaciente(hora).getDNI().hashCode();
+            String DNI = DNIs[cambios[i]];
+            if (urgencias.getPaciente(DNI) != null) {
+                urgencias.cambiarPrioridad(DNI, (prioridades[cambios[i]] + 1) % PRIORIDADES, hora);
+            }
+        }
+        return huella;
+    }
+
+    // Heap usado despues de pedir al recolector que limpie
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        long usada = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            usada = Math.min(usada, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return usada;
+    }
+}
@@ -0,0 +1,148 @@
+package aed.urgencias;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mide el rendimiento de UrgenciasConcurrente con 1, 2, 4, 8, 16 y 32 hilos
+ * (o los numeros de hilos dados como argumentos). Las urgencias empiezan con
+ * 100000 pacientes esperando y cada hilo hace de recepcion y de medico a la
+ * vez: admite un paciente nuevo y atiende al primero, hasta repartir entre
+ * todos un millon de pares de operaciones. Como referencia se mide
+ * UrgenciasAED con un unico cerrojo alrededor de cada operacion.
+ *
+ * Despues de cada ejecucion se atiende a los que quedan y se comprueba que
+ * cada paciente admitido se ha atendido exactamente una vez. Se informa de la
+ * mejor de varias ejecuciones, en miles de operaciones por segundo.
+ */
+public class MedicionConcurrente {
+
+    private static final int PACIENTES_INICIALES = 100_000;
+    private static final int PARES = 1_000_000;
+    private static final int PRIORIDADES = 5;
+    private static final int EJECUCIONES = 4;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] hilos = { 1, 2, 4, 8, 16, 32 };
+        if (args.length > 0) {
+            hilos = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                hilos[i] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.println(Runtime.getRuntime().availableProcessors() + " procesadores, " + PARES
+                + " admisiones y atenciones sobre " + PACIENTES_INICIALES + " pacientes");
+        for (int h : hilos) {
+            long concurrente = Long.MAX_VALUE;
+            long conCerrojo = Long.MAX_VALUE;
+            for (int i = 0; i < EJECUCIONES; i++) {
+                concurrente = Math.min(concurrente, ejecutar(new UrgenciasConcurrente(), false, h));
+                conCerrojo = Math.min(conCerrojo, ejecutar(new UrgenciasAED(), true, h));
+            }
+            System.out.printf("  %2d hilos: UrgenciasConcurrente %8.0f kops/s, UrgenciasAED con cerrojo %8.0f kops/s%n",
+                    h, 2e6 * PARES / concurrente, 2e6 * PARES / conCerrojo);
+        }
+    }
+
+    // Devuelve los nanosegundos desde que arrancan los hilos hasta que acaba el
+    // ultimo. Si cerrojo es true, cada operacion se hace con urgencias bloqueado
+    private static long ejecutar(final Urgencias urgencias, final boolean cerrojo, int hilos)
+            throws InterruptedException {
+        List<String> admitidos = new ArrayList<>(PACIENTES_INICIALES + PARES);
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        try {
+            for (int i = 0; i < PACIENTES_INICIALES; i++) {
+                String DNI = "I" + i;
+                urgencias.admitirPaciente(DNI, aleatorio.nextInt(PRIORIDADES), 0);
+                admitidos.add(DNI);
+            }
+        } catch (PacienteExisteException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final CountDownLatch salida = new CountDownLatch(1);
+        final String[][] nuevos = new String[hilos][];
+        final String[][] atendidos = new String[hilos][];
+        Thread[] trabajadores = new Thread[hilos];
+        for (int t = 0; t < hilos; t++) {
+            final int pares = PARES / hilos + (t < PARES % hilos ? 1 : 0);
+            nuevos[t] = new String[pares];
+            atendidos[t] = new String[pares];
+            for (int i = 0; i < pares; i++) {
+                nuevos[t][i] = "T" + t + "-" + i;
+            }
+            final int h = t;
+            trabajadores[t] = new Thread(() -> {
+                try {
+                    salida.await();
+                    trabajar(urgencias, cerrojo, nuevos[h], atendidos[h]);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            trabajadores[t].start();
+        }
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        // Cada paciente admitido se tiene que haber atendido una vez, ahora o antes
+        for (String[] lista : nuevos) {
+            for (String DNI : lista) {
+                admitidos.add(DNI);
+            }
+        }
+        Set<String> vistos = new HashSet<>(admitidos.size());
+        for (String[] lista : atendidos) {
+            for (String DNI : lista) {
+                comprobarUnaVez(vistos, DNI);
+            }
+        }
+        Paciente resto;
+        while ((resto = urgencias.atenderPaciente(PARES)) != null) {
+            comprobarUnaVez(vistos, resto.getDNI());
+        }
+        if (vistos.size() != admitidos.size() || !vistos.containsAll(admitidos)) {
+            throw new IllegalStateException(vistos.size() + " atendidos de " + admitidos.size() + " admitidos");
+        }
+        return nanos;
+    }
+
+    private static void trabajar(Urgencias urgencias, boolean cerrojo, String[] nuevos, String[] atendidos) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        try {
+            for (int i = 0; i < nuevos.length; i++) {
+                int prioridad = aleatorio.nextInt(PRIORIDADES);
+                Paciente paciente;
+                if (cerrojo) {
+                    synchronized (urgencias) {
+                        urgencias.admitirPaciente(nuevos[i], prioridad, i + 1);
+                    }
+                    synchronized (urgencias) {
+                        paciente = urgencias.atenderPaciente(i + 1);
+                    }
+                } else {
+                    urgencias.admitirPaciente(nuevos[i], prioridad, i + 1);
+                    paciente = urgencias.atenderPaciente(i + 1);
+                }
+                // Nunca esta vacia: cada hilo admite antes de atender
+                atendidos[i] = paciente.getDNI();
+            }
+        } catch (PacienteExisteException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void comprobarUnaVez(Set<String> vistos, String DNI) {
+        if (!vistos.add(DNI)) {
+            throw new IllegalStateException(DNI + " atendido mas de una vez");
+        }
+    }
+}
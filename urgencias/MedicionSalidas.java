@@ -0,0 +1,151 @@
+package aed.urgencias;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Mide salirPaciente y cambiarPrioridad con muchos pacientes esperando (por
+ * defecto un millon, o el numero dado como argumento). Compara UrgenciasAED,
+ * cuyo monticulo indexado hace las dos operaciones en O(log n), con la
+ * implementacion anterior sobre java.util.PriorityQueue, donde remove busca
+ * al paciente recorriendo la cola en O(n).
+ *
+ * Las dos reciben los mismos pacientes y las mismas operaciones, y despues se
+ * comprueba que atienden a los pacientes en el mismo orden. Como la version
+ * anterior tarda milisegundos por operacion, a ella solo se le mide una parte
+ * de las operaciones.
+ */
+public class MedicionSalidas {
+
+    // Operaciones de cada tipo sobre UrgenciasAED, y sobre la version anterior
+    private static final int OPERACIONES = 100_000;
+    private static final int OPERACIONES_LINEALES = 1_000;
+    // Pacientes atendidos al final para comparar el orden
+    private static final int ATENDIDOS = 10_000;
+    private static final int PRIORIDADES = 5;
+
+    public static void main(String[] args) throws PacienteExisteException, PacienteNoExisteException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random aleatorio = new Random(n);
+        List<Paciente> llegadas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // Horas de admision distintas para que no haya empates en el orden
+            llegadas.add(new Paciente("P" + i, aleatorio.nextInt(PRIORIDADES), i, i));
+        }
+        // Cada operacion es una salida o un cambio de prioridad, con su DNI
+        // (todos distintos) y la nueva prioridad
+        int[] elegidos = new int[2 * OPERACIONES];
+        int[] prioridades = new int[2 * OPERACIONES];
+        boolean[] usados = new boolean[n];
+        for (int i = 0; i < elegidos.length; i++) {
+            int p;
+            do {
+                p = aleatorio.nextInt(n);
+            } while (usados[p]);
+            usados[p] = true;
+            elegidos[i] = p;
+            prioridades[i] = aleatorio.nextInt(PRIORIDADES);
+        }
+        System.out.println(n + " pacientes esperando");
+
+        UrgenciasAED urgencias = new UrgenciasAED();
+        urgencias.admitirPacientes(llegadas);
+        medir("UrgenciasAED", n, elegidos, prioridades, OPERACIONES, urgencias::salirPaciente,
+                urgencias::cambiarPrioridad);
+
+        UrgenciasAED indexada = new UrgenciasAED();
+        indexada.admitirPacientes(llegadas);
+        UrgenciasLineal lineal = new UrgenciasLineal();
+        for (Paciente paciente : llegadas) {
+            lineal.admitirPaciente(paciente.getDNI(), paciente.getPrioridad(), paciente.getTiempoAdmision());
+        }
+        medir("UrgenciasAED", n, elegidos, prioridades, OPERACIONES_LINEALES, indexada::salirPaciente,
+                indexada::cambiarPrioridad);
+        medir("PriorityQueue.remove", n, elegidos, prioridades, OPERACIONES_LINEALES, lineal::salirPaciente,
+                lineal::cambiarPrioridad);
+
+        int hora = n + 2 * OPERACIONES;
+        for (int i = 0; i < ATENDIDOS; i++) {
+            String esperado = lineal.atenderPaciente().getDNI();
+            String atendido = indexada.atenderPaciente(hora).getDNI();
+            if (!esperado.equals(atendido)) {
+                throw new IllegalStateException("atendido " + i + ": " + atendido + ", se esperaba " + esperado);
+            }
+        }
+        System.out.println("mismo orden de atencion en los " + ATENDIDOS + " primeros pacientes");
+    }
+
+    // Las dos operaciones medidas, con la firma de Urgencias
+    private interface Salida {
+        Paciente salir(String DNI, int hora) throws PacienteNoExisteException;
+    }
+
+    private interface Cambio {
+        Paciente cambiar(String DNI, int nuevaPrioridad, int hora) throws PacienteNoExisteException;
+    }
+
+    // Hace operaciones salidas (elegidos pares) y otros tantos cambios (impares)
+    // y escribe el tiempo medio de cada tipo
+    private static void medir(String nombre, int n, int[] elegidos, int[] prioridades, int operaciones,
+            Salida salida, Cambio cambio) throws PacienteNoExisteException {
+        int hora = n;
+        long nanosSalidas = 0;
+        long nanosCambios = 0;
+        for (int i = 0; i < operaciones; i++) {
+            long inicio = System.nanoTime();
+            salida.salir("P" + elegidos[2 * i], hora++);
+            long medio = System.nanoTime();
+            cambio.cambiar("P" + elegidos[2 * i + 1], prioridades[2 * i + 1], hora++);
+            nanosCambios += System.nanoTime() - medio;
+            nanosSalidas += medio - inicio;
+        }
+        System.out.printf("  %-22s %7d salidas %10.2f us/op, %7d cambios %10.2f us/op%n", nombre, operaciones,
+                nanosSalidas / 1e3 / operaciones, operaciones, nanosCambios / 1e3 / operaciones);
+    }
+
+    // La implementacion anterior: HashMap por DNI y java.util.PriorityQueue,
+    // donde remove recorre la cola para encontrar al paciente
+    private static class UrgenciasLineal {
+        private final Map<String, Paciente> pacientes = new HashMap<>();
+        private final PriorityQueue<Paciente> colaPrioridad = new PriorityQueue<>();
+
+        void admitirPaciente(String DNI, int prioridad, int hora) {
+            Paciente paciente = new Paciente(DNI, prioridad, hora, hora);
+            pacientes.put(DNI, paciente);
+            colaPrioridad.add(paciente);
+        }
+
+        Paciente salirPaciente(String DNI, int hora) throws PacienteNoExisteException {
+            Paciente paciente = pacientes.remove(DNI);
+            if (paciente == null) {
+                throw new PacienteNoExisteException();
+            }
+            colaPrioridad.remove(paciente);
+            return paciente;
+        }
+
+        Paciente cambiarPrioridad(String DNI, int nuevaPrioridad, int hora) throws PacienteNoExisteException {
+            Paciente paciente = pacientes.get(DNI);
+            if (paciente == null) {
+                throw new PacienteNoExisteException();
+            }
+            if (paciente.getPrioridad() != nuevaPrioridad) {
+                colaPrioridad.remove(paciente);
+                paciente.setPrioridad(nuevaPrioridad);
+                paciente.setTiempoAdmisionEnPrioridad(hora);
+                colaPrioridad.add(paciente);
+            }
+            return paciente;
+        }
+
+        Paciente atenderPaciente() {
+            Paciente paciente = colaPrioridad.poll();
+            pacientes.remove(paciente.getDNI());
+            return paciente;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package aed.urgencias;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Monticulo binario de pacientes (el menor segun compareTo en la raiz) en el
+ * que cada paciente guarda su posicion en el array. Asi borrar un paciente
+ * cualquiera o recolocarlo despues de cambiar su prioridad cuesta O(log n),
+ * en lugar de la busqueda lineal de java.util.PriorityQueue.remove.
+ *
+ * Un paciente solo puede estar en un MonticuloPacientes a la vez.
+ */
+class MonticuloPacientes {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private Paciente[] monticulo;
+    private int size;
+    // Numero de modificaciones, para que los iteradores detecten cambios
+    private int modificaciones;
+
+    MonticuloPacientes() {
+        this.monticulo = new Paciente[CAPACIDAD_INICIAL];
+        this.size = 0;
+        this.modificaciones = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Devuelve el paciente en la posicion i del array (sin ningun orden
+     * especial salvo el del monticulo).
+     */
+    Paciente get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("i=" + i + ", size=" + size);
+        }
+        return monticulo[i];
+    }
+
+    boolean contains(Paciente paciente) {
+        int i = paciente.getIndiceMonticulo();
+        return i >= 0 && i < size && monticulo[i] == paciente;
+    }
+
+    void add(Paciente paciente) {
+        if (size == monticulo.length) {
+            monticulo = Arrays.copyOf(monticulo, 2 * monticulo.length);
+        }
+        modificaciones++;
+        colocar(paciente, size);
+        size++;
+        subir(size - 1);
+    }
+
+    /**
+     * Añade varios pacientes a la vez. Si son muchos respecto al tamaño del
+     * monticulo se añaden al final y se reconstruye el monticulo de abajo a
+     * arriba (heapify) en O(n); si son pocos, es mas barato subir cada uno.
+     */
+    void addAll(Collection<Paciente> nuevos) {
+        int m = nuevos.size();
+        if (m == 0) {
+            return;
+        }
+        int total = size + m;
+        if (total > monticulo.length) {
+            monticulo = Arrays.copyOf(monticulo, Math.max(total, 2 * monticulo.length));
+        }
+        modificaciones++;
+
+        // m subidas cuestan O(m log total); el heapify O(total)
+        int log = 32 - Integer.numberOfLeadingZeros(total);
+        if ((long) m * log < total) {
+            for (Paciente paciente : nuevos) {
+                colocar(paciente, size);
+                size++;
+                subir(size - 1);
+            }
+        } else {
+            for (Paciente paciente : nuevos) {
+                colocar(paciente, size);
+                size++;
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                bajar(i);
+            }
+        }
+    }
+
+    /**
+     * Devuelve el primer paciente sin borrarlo, o null si esta vacio.
+     */
+    Paciente peek() {
+        return size == 0 ? null : monticulo[0];
+    }
+
+    /**
+     * Borra y devuelve el primer paciente, o null si esta vacio.
+     */
+    Paciente poll() {
+        if (size == 0) {
+            return null;
+        }
+        Paciente primero = monticulo[0];
+        borrarEn(0);
+        return primero;
+    }
+
+    /**
+     * Borra el paciente en O(log n).
+     *
+     * @return true si el paciente estaba en el monticulo
+     */
+    boolean remove(Paciente paciente) {
+        if (!contains(paciente)) {
+            return false;
+        }
+        borrarEn(paciente.getIndiceMonticulo());
+        return true;
+    }
+
+    /**
+     * Recoloca el paciente despues de cambiar su prioridad o su tiempo de
+     * admision en prioridad, en O(log n).
+     */
+    void actualizar(Paciente paciente) {
+        if (!contains(paciente)) {
+            throw new IllegalArgumentException("El paciente no esta en el monticulo: " + paciente);
+        }
+        modificaciones++;
+        int i = paciente.getIndiceMonticulo();
+        subir(i);
+        bajar(paciente.getIndiceMonticulo());
+    }
+
+    /**
+     * Devuelve una copia del monticulo que se puede recorrer en el orden en que
+     * serian atendidos los pacientes en este momento. Cuesta O(n): se copian
+     * el array y las claves de orden de cada paciente (que pueden cambiar
+     * despues), pero no se ordena nada. Cada iterador de la copia es perezoso
+     * como el de iteradorOrdenado, y la copia no cambia aunque el monticulo
+     * cambie.
+     */
+    Iterable<Paciente> instantanea() {
+        final Paciente[] copia = Arrays.copyOf(monticulo, size);
+        // Claves de orden de la copia: prioridad, tiempo en prioridad y admision
+        final int[] claves = new int[3 * size];
+        for (int i = 0; i < size; i++) {
+            claves[3 * i] = copia[i].getPrioridad();
+            claves[3 * i + 1] = copia[i].getTiempoAdmisionEnPrioridad();
+            claves[3 * i + 2] = copia[i].getTiempoAdmision();
+        }
+        return new Iterable<Paciente>() {
+            @Override
+            public Iterator<Paciente> iterator() {
+                return new Frontera(copia.length) {
+                    @Override
+                    boolean menor(int i, int j) {
+                        for (int c = 0; c < 3; c++) {
+                            if (claves[3 * i + c] != claves[3 * j + c]) {
+                                return claves[3 * i + c] < claves[3 * j + c];
+                            }
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    Paciente paciente(int i) {
+                        return copia[i];
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Devuelve un iterador que recorre los pacientes en el orden en que serian
+     * atendidos, sin modificar el monticulo. Es perezoso: mantiene una frontera
+     * con los hijos de los pacientes ya devueltos, de modo que los k primeros
+     * cuestan O(k log k). Falla con ConcurrentModificationException si el
+     * monticulo cambia durante el recorrido.
+     */
+    Iterator<Paciente> iteradorOrdenado() {
+        final int modificacionesEsperadas = modificaciones;
+        return new Frontera(size) {
+            @Override
+            boolean menor(int i, int j) {
+                return monticulo[i].compareTo(monticulo[j]) < 0;
+            }
+
+            @Override
+            Paciente paciente(int i) {
+                if (modificaciones != modificacionesEsperadas) {
+                    throw new ConcurrentModificationException();
+                }
+                return monticulo[i];
+            }
+        };
+    }
+
+    /**
+     * Recorre en orden un monticulo de n posiciones sin modificarlo. Mantiene
+     * un monticulo auxiliar (la frontera) con las posiciones candidatas: al
+     * principio la raiz, y al sacar una posicion se meten sus hijos.
+     */
+    private abstract static class Frontera implements Iterator<Paciente> {
+        private final int n;
+        private int[] frontera;
+        private int tamFrontera;
+
+        Frontera(int n) {
+            this.n = n;
+            this.frontera = new int[CAPACIDAD_INICIAL];
+            this.tamFrontera = 0;
+            if (n > 0) {
+                meter(0);
+            }
+        }
+
+        // Orden entre las posiciones i y j del monticulo recorrido
+        abstract boolean menor(int i, int j);
+
+        // Paciente en la posicion i del monticulo recorrido
+        abstract Paciente paciente(int i);
+
+        @Override
+        public boolean hasNext() {
+            return tamFrontera > 0;
+        }
+
+        @Override
+        public Paciente next() {
+            if (tamFrontera == 0) {
+                throw new NoSuchElementException();
+            }
+            Paciente siguiente = paciente(frontera[0]);
+            int i = sacar();
+            // Los hijos son los unicos nuevos candidatos a siguiente
+            if (2 * i + 1 < n) {
+                meter(2 * i + 1);
+            }
+            if (2 * i + 2 < n) {
+                meter(2 * i + 2);
+            }
+            return siguiente;
+        }
+
+        private void meter(int posicion) {
+            if (tamFrontera == frontera.length) {
+                frontera = Arrays.copyOf(frontera, 2 * frontera.length);
+            }
+            int j = tamFrontera++;
+            while (j > 0 && menor(posicion, frontera[(j - 1) / 2])) {
+                frontera[j] = frontera[(j - 1) / 2];
+                j = (j - 1) / 2;
+            }
+            frontera[j] = posicion;
+        }
+
+        private int sacar() {
+            int primero = frontera[0];
+            int ultimo = frontera[--tamFrontera];
+            int j = 0;
+            while (2 * j + 1 < tamFrontera) {
+                int hijo = 2 * j + 1;
+                if (hijo + 1 < tamFrontera && menor(frontera[hijo + 1], frontera[hijo])) {
+                    hijo++;
+                }
+                if (!menor(frontera[hijo], ultimo)) {
+                    break;
+                }
+                frontera[j] = frontera[hijo];
+                j = hijo;
+            }
+            frontera[j] = ultimo;
+            return primero;
+        }
+    }
+
+    private void borrarEn(int i) {
+        modificaciones++;
+        Paciente borrado = monticulo[i];
+        size--;
+        if (i != size) {
+            // El ultimo ocupa el hueco y se recoloca hacia arriba o hacia abajo
+            Paciente ultimo = monticulo[size];
+            colocar(ultimo, i);
+            subir(i);
+            bajar(ultimo.getIndiceMonticulo());
+        }
+        monticulo[size] = null;
+        borrado.setIndiceMonticulo(-1);
+    }
+
+    private void subir(int i) {
+        Paciente paciente = monticulo[i];
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (paciente.compareTo(monticulo[padre]) >= 0) {
+                break;
+            }
+            colocar(monticulo[padre], i);
+            i = padre;
+        }
+        colocar(paciente, i);
+    }
+
+    private void bajar(int i) {
+        Paciente paciente = monticulo[i];
+        while (2 * i + 1 < size) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < size && monticulo[hijo + 1].compareTo(monticulo[hijo]) < 0) {
+                hijo++;
+            }
+            if (monticulo[hijo].compareTo(paciente) >= 0) {
+                break;
+            }
+            colocar(monticulo[hijo], i);
+            i = hijo;
+        }
+        colocar(paciente, i);
+    }
+
+    private void colocar(Paciente paciente, int i) {
+        monticulo[i] = paciente;
+        paciente.setIndiceMonticulo(i);
+    }
+
+}
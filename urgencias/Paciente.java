@@ -13,6 +13,8 @@ public class Paciente implements Comparable<Paciente> {
 	private int tiempoAdmision;
 	// Tiempo cuando entro en la prioridad
 	private int tiempoAdmisionEnPrioridad;
+	// Posicion en el MonticuloPacientes que lo contiene (-1 si no esta en ninguno)
+	private int indiceMonticulo;
 
 	/**
 	 * Constructor.
@@ -22,6 +24,7 @@ public class Paciente implements Comparable<Paciente> {
 		this.prioridad = prioridad;
 		this.tiempoAdmision = tiempoAdmision;
 		this.tiempoAdmisionEnPrioridad = tiempoAdmisionEnPrioridad;
+		this.indiceMonticulo = -1;
 	}
 
 	/**
@@ -82,6 +85,20 @@ public class Paciente implements Comparable<Paciente> {
 		return oldTiempo;
 	}
 
+	/**
+	 * Devuelve la posicion en el monticulo. Para USO INTERNO solo.
+	 */
+	int getIndiceMonticulo() {
+		return indiceMonticulo;
+	}
+
+	/**
+	 * Asigna la posicion en el monticulo. Para USO INTERNO solo.
+	 */
+	void setIndiceMonticulo(int indice) {
+		this.indiceMonticulo = indice;
+	}
+
 	@Override
 	public String toString() {
 		return "<\"" + DNI.toString() + "\"," + prioridad + "," + tiempoAdmision + "," + tiempoAdmisionEnPrioridad
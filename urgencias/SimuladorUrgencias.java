@@ -0,0 +1,215 @@
+package aed.urgencias;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Simulador de eventos discretos para urgencias. Genera una carga (llegadas,
+ * cambios de prioridad, salidas, atenciones y envejecimiento) a partir de una
+ * ConfiguracionSimulacion, o la lee de un fichero de traza, y la ejecuta sobre
+ * cualquier implementacion de Urgencias midiendo la latencia de cada
+ * operacion. Como la carga es una lista de eventos, se puede ejecutar la misma
+ * sobre varias implementaciones para compararlas.
+ *
+ * Formato de traza: una linea por evento, hora,TIPO,DNI,valor (ver
+ * EventoSimulacion). Las lineas vacias o que empiezan por # se ignoran.
+ */
+public class SimuladorUrgencias {
+
+    // Por hora y, con la misma hora, por numero de secuencia (orden de creacion)
+    private static final Comparator<EventoSimulacion> POR_HORA = new Comparator<EventoSimulacion>() {
+        @Override
+        public int compare(EventoSimulacion e1, EventoSimulacion e2) {
+            int comparacion = Integer.compare(e1.getHora(), e2.getHora());
+            return comparacion != 0 ? comparacion : Long.compare(e1.getSecuencia(), e2.getSecuencia());
+        }
+    };
+
+    /**
+     * Genera una carga ordenada por hora. La misma configuracion (incluida la
+     * semilla) genera siempre la misma carga.
+     */
+    public static List<EventoSimulacion> generar(ConfiguracionSimulacion configuracion) {
+        Random aleatorio = new Random(configuracion.getSemilla());
+        int duracion = configuracion.getDuracion();
+        double[] pesos = configuracion.getPesosPrioridad();
+        List<EventoSimulacion> eventos = new ArrayList<>();
+
+        // Llegadas, y para cada paciente su posible cambio de prioridad y salida
+        double t = exponencial(aleatorio, configuracion.getMediaEntreLlegadas());
+        for (int n = 0; t <= duracion; n++) {
+            int hora = (int) t;
+            String DNI = "P" + n;
+            eventos.add(new EventoSimulacion(hora, EventoSimulacion.Tipo.LLEGADA, DNI, elegir(aleatorio, pesos)));
+            if (aleatorio.nextDouble() < configuracion.getProbabilidadCambio()) {
+                int horaCambio = hora + 1 + (int) exponencial(aleatorio, configuracion.getMediaHastaCambio());
+                if (horaCambio <= duracion) {
+                    eventos.add(new EventoSimulacion(horaCambio, EventoSimulacion.Tipo.CAMBIO_PRIORIDAD, DNI,
+                            elegir(aleatorio, pesos)));
+                }
+            }
+            if (aleatorio.nextDouble() < configuracion.getProbabilidadSalida()) {
+                int horaSalida = hora + 1 + (int) exponencial(aleatorio, configuracion.getMediaHastaSalida());
+                if (horaSalida <= duracion) {
+                    eventos.add(new EventoSimulacion(horaSalida, EventoSimulacion.Tipo.SALIDA, DNI, 0));
+                }
+            }
+            t += exponencial(aleatorio, configuracion.getMediaEntreLlegadas());
+        }
+
+        // Atenciones y envejecimiento periodicos
+        for (int hora = configuracion.getIntervaloAtencion(); hora <= duracion; hora += configuracion
+                .getIntervaloAtencion()) {
+            eventos.add(new EventoSimulacion(hora, EventoSimulacion.Tipo.ATENCION, null, 0));
+        }
+        for (int hora = configuracion.getIntervaloEnvejecimiento(); hora <= duracion; hora += configuracion
+                .getIntervaloEnvejecimiento()) {
+            eventos.add(new EventoSimulacion(hora, EventoSimulacion.Tipo.ENVEJECIMIENTO, null,
+                    configuracion.getMaxTiempoEspera()));
+        }
+
+        // Con la misma hora se respeta el orden de generacion
+        eventos.sort(POR_HORA);
+        return eventos;
+    }
+
+    /**
+     * Lee una traza y la ordena por hora; con la misma hora se respeta el orden
+     * de las lineas.
+     */
+    public static List<EventoSimulacion> leerTraza(Path fichero) throws IOException {
+        List<EventoSimulacion> eventos = new ArrayList<>();
+        try (BufferedReader entrada = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                linea = linea.trim();
+                if (!linea.isEmpty() && !linea.startsWith("#")) {
+                    eventos.add(EventoSimulacion.parse(linea));
+                }
+            }
+        }
+        eventos.sort(POR_HORA);
+        return eventos;
+    }
+
+    /**
+     * Escribe una traza que se puede volver a leer con leerTraza.
+     */
+    public static void escribirTraza(List<EventoSimulacion> eventos, Path fichero) throws IOException {
+        try (BufferedWriter salida = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8)) {
+            salida.write("# hora,TIPO,DNI,valor");
+            salida.newLine();
+            for (EventoSimulacion evento : eventos) {
+                salida.write(evento.toString());
+                salida.newLine();
+            }
+        }
+    }
+
+    /**
+     * Ejecuta los eventos, en orden, sobre las urgencias y mide cada operacion.
+     */
+    public static InformeSimulacion ejecutar(Urgencias urgencias, List<EventoSimulacion> eventos) {
+        EnumMap<EventoSimulacion.Tipo, HistogramaEspera> histogramas = new EnumMap<>(EventoSimulacion.Tipo.class);
+        EnumMap<EventoSimulacion.Tipo, Long> operaciones = new EnumMap<>(EventoSimulacion.Tipo.class);
+        EnumMap<EventoSimulacion.Tipo, Long> fallidas = new EnumMap<>(EventoSimulacion.Tipo.class);
+        for (EventoSimulacion.Tipo tipo : EventoSimulacion.Tipo.values()) {
+            histogramas.put(tipo, new HistogramaEspera());
+            operaciones.put(tipo, 0L);
+            fallidas.put(tipo, 0L);
+        }
+
+        long nanos = 0;
+        for (EventoSimulacion evento : eventos) {
+            boolean exito = true;
+            long inicio = System.nanoTime();
+            try {
+                switch (evento.getTipo()) {
+                case LLEGADA:
+                    urgencias.admitirPaciente(evento.getDNI(), evento.getValor(), evento.getHora());
+                    break;
+                case CAMBIO_PRIORIDAD:
+                    urgencias.cambiarPrioridad(evento.getDNI(), evento.getValor(), evento.getHora());
+                    break;
+                case SALIDA:
+                    urgencias.salirPaciente(evento.getDNI(), evento.getHora());
+                    break;
+                case ATENCION:
+                    exito = urgencias.atenderPaciente(evento.getHora()) != null;
+                    break;
+                case ENVEJECIMIENTO:
+                    urgencias.aumentaPrioridad(evento.getValor(), evento.getHora());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tipo desconocido: " + evento.getTipo());
+                }
+            } catch (PacienteExisteException | PacienteNoExisteException e) {
+                // Normal en una carga: por ejemplo, el paciente ya fue atendido
+                exito = false;
+            }
+            long latencia = System.nanoTime() - inicio;
+            nanos += latencia;
+
+            EventoSimulacion.Tipo tipo = evento.getTipo();
+            histogramas.get(tipo).registrar(latencia);
+            operaciones.put(tipo, operaciones.get(tipo) + 1);
+            if (!exito) {
+                fallidas.put(tipo, fallidas.get(tipo) + 1);
+            }
+        }
+
+        EnumMap<EventoSimulacion.Tipo, InstantaneaEspera> latencias = new EnumMap<>(EventoSimulacion.Tipo.class);
+        for (EventoSimulacion.Tipo tipo : EventoSimulacion.Tipo.values()) {
+            if (operaciones.get(tipo) > 0) {
+                latencias.put(tipo, histogramas.get(tipo).instantanea());
+            }
+        }
+        return new InformeSimulacion(urgencias.getClass().getSimpleName(), operaciones, fallidas, latencias, nanos,
+                urgencias.informacionEspera());
+    }
+
+    /**
+     * Ejecuta la misma carga sobre todas las implementaciones y escribe los
+     * informes. Con un argumento, la carga se lee de ese fichero de traza; si
+     * no, se genera con la configuracion por defecto.
+     */
+    public static void main(String[] args) throws IOException {
+        List<EventoSimulacion> eventos = args.length > 0 ? leerTraza(Paths.get(args[0]))
+                : generar(new ConfiguracionSimulacion());
+        System.out.println(eventos.size() + " eventos");
+
+        Urgencias[] implementaciones = { new UrgenciasAED(), new UrgenciasCubetas(), new UrgenciasConcurrente(),
+                new UrgenciasCompacta() };
+        for (Urgencias urgencias : implementaciones) {
+            System.out.println(ejecutar(urgencias, eventos));
+        }
+    }
+
+    // Muestra de una distribucion exponencial con la media dada
+    private static double exponencial(Random aleatorio, double media) {
+        return -media * Math.log(1 - aleatorio.nextDouble());
+    }
+
+    // Posicion elegida al azar con probabilidad proporcional a su peso
+    private static int elegir(Random aleatorio, double[] pesos) {
+        double total = 0;
+        for (double peso : pesos) {
+            total += peso;
+        }
+        double x = aleatorio.nextDouble() * total;
+        for (int i = 0; i < pesos.length - 1; i++) {
+            x -= pesos[i];
+            if (x < 0) {
+                return i;
+            }
+        }
+        return pesos.length - 1;
+    }
+
+}
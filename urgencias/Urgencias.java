@@ -1,6 +1,10 @@
 package aed.urgencias;
 
 import es.upm.aedlib.Pair;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
 
 /**
@@ -45,6 +49,33 @@ public interface Urgencias {
   Paciente atenderPaciente(int hora);
 
 
+  /** 
+   * Operaciones O(m log n), siendo m el numero de pacientes nuevos:
+   * ===============================================================
+   * (las implementaciones pueden hacerlas en O(n + m))
+   */
+
+  /**
+   * Admite de una vez a todos los pacientes de la coleccion, cada uno con su
+   * DNI, prioridad y tiempo de admision (como si se llamara a admitirPaciente
+   * con esos datos). Los pacientes cuyo DNI ya esta admitido, o aparece antes
+   * en la coleccion, no se admiten.
+   * @returns los DNIs de los pacientes que no se han admitido por estar
+   * repetidos, en el orden de la coleccion.
+   */
+  default List<String> admitirPacientes(Collection<Paciente> nuevos) {
+    List<String> repetidos = new ArrayList<>();
+    for (Paciente paciente : nuevos) {
+      try {
+        admitirPaciente(paciente.getDNI(), paciente.getPrioridad(), paciente.getTiempoAdmision());
+      } catch (PacienteExisteException e) {
+        repetidos.add(paciente.getDNI());
+      }
+    }
+    return repetidos;
+  }
+
+
   /** 
    * Operaciones O(n log n):
    * =======================
@@ -58,10 +89,31 @@ public interface Urgencias {
 
   /**
    * Devuelve un objeto Iterable ordenado segun el orden en que los pacientes
-   * serian atendidos.
+   * serian atendidos. Es una foto de la cola en el momento de la llamada: se
+   * puede recorrer mientras se atienden o admiten pacientes, y esos cambios
+   * no le afectan.
    */
   Iterable<Paciente> pacientesEsperando();
 
+  /**
+   * Devuelve como mucho los limit primeros pacientes, en el orden en que
+   * serian atendidos. Pensado para pantallas que solo muestran los primeros:
+   * esta version por defecto cuesta lo mismo que pacientesEsperando, pero las
+   * implementaciones pueden hacerlo sin ordenar todos los pacientes
+   * (UrgenciasAED, por ejemplo, en O(limit log limit)).
+   */
+  default Iterable<Paciente> pacientesEsperando(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit=" + limit);
+    }
+    List<Paciente> primeros = new ArrayList<>();
+    Iterator<Paciente> it = pacientesEsperando().iterator();
+    while (primeros.size() < limit && it.hasNext()) {
+      primeros.add(it.next());
+    }
+    return primeros;
+  }
+
 
   /** 
    * Operaciones O(1):
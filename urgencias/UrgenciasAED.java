@@ -10,18 +10,22 @@ public class UrgenciasAED implements Urgencias {
 
     // Mapa para gestionar pacientes por su DNI
     private Map<String, Paciente> pacientes;
-    // Cola de prioridad para gestionar pacientes según urgencia
-    private PriorityQueue<Paciente> colaPrioridad;
+    // Cola de prioridad para gestionar pacientes según urgencia. Es un
+    // monticulo indexado, asi que borrar o recolocar un paciente es O(log n)
+    private MonticuloPacientes colaPrioridad;
     // Variables para el seguimiento de tiempos de espera y número de pacientes atendidos
     private int sumaTiemposEspera;
     private int numeroPacientesAtendidos;
+    // Histogramas de los tiempos de espera
+    private EstadisticasEspera estadisticas;
 
     // Constructor: inicializa las estructuras y variables internas
     public UrgenciasAED() {
         this.pacientes = new HashMap<>();
-        this.colaPrioridad = new PriorityQueue<>();
+        this.colaPrioridad = new MonticuloPacientes();
         this.sumaTiemposEspera = 0;
         this.numeroPacientesAtendidos = 0;
+        this.estadisticas = new EstadisticasEspera();
     }
 
     @Override
@@ -38,6 +42,31 @@ public class UrgenciasAED implements Urgencias {
         return nuevoPaciente;
     }
 
+    /**
+     * Comprueba los DNIs repetidos en una sola pasada y añade todos los
+     * pacientes nuevos al monticulo de una vez, reconstruyendolo de abajo a
+     * arriba en O(n) en lugar de hacer una subida por paciente.
+     */
+    @Override
+    public List<String> admitirPacientes(Collection<Paciente> nuevos) {
+        List<String> repetidos = new ArrayList<>();
+        List<Paciente> admitidos = new ArrayList<>(nuevos.size());
+        for (Paciente paciente : nuevos) {
+            String DNI = paciente.getDNI();
+            // Ya admitido antes, o repetido dentro de la propia coleccion
+            if (pacientes.containsKey(DNI)) {
+                repetidos.add(DNI);
+            } else {
+                Paciente nuevoPaciente = new Paciente(DNI, paciente.getPrioridad(), paciente.getTiempoAdmision(),
+                        paciente.getTiempoAdmision());
+                pacientes.put(DNI, nuevoPaciente);
+                admitidos.add(nuevoPaciente);
+            }
+        }
+        colaPrioridad.addAll(admitidos);
+        return repetidos;
+    }
+
     @Override
     public Paciente salirPaciente(String DNI, int hora) throws PacienteNoExisteException {
         // Intenta eliminar al paciente del mapa
@@ -59,17 +88,12 @@ public class UrgenciasAED implements Urgencias {
             throw new PacienteNoExisteException(); // Si no existe, lanza una excepción
         }
 
-        // Elimina al paciente de la cola de prioridad para actualizar su información
-        colaPrioridad.remove(paciente);
-
-        // Actualiza la prioridad solo si ha cambiado
+        // Actualiza la prioridad solo si ha cambiado, y recoloca al paciente en la cola
         if (paciente.getPrioridad() != nuevaPrioridad) {
             paciente.setPrioridad(nuevaPrioridad);
             paciente.setTiempoAdmisionEnPrioridad(hora);
+            colaPrioridad.actualizar(paciente);
         }
-
-        // Reintroduce al paciente en la cola con la nueva prioridad
-        colaPrioridad.add(paciente);
         return paciente;
     }
 
@@ -88,6 +112,7 @@ public class UrgenciasAED implements Urgencias {
         int tiempoEspera = hora - paciente.getTiempoAdmision();
         sumaTiemposEspera += tiempoEspera;
         numeroPacientesAtendidos++; // Incrementa el contador de pacientes atendidos
+        estadisticas.registrar(paciente.getPrioridad(), tiempoEspera);
 
         return paciente;
     }
@@ -98,7 +123,8 @@ public class UrgenciasAED implements Urgencias {
         List<Paciente> actualizar = new ArrayList<>();
 
         // Identifica pacientes cuya prioridad debe incrementarse
-        for (Paciente paciente : colaPrioridad) {
+        for (int i = 0; i < colaPrioridad.size(); i++) {
+            Paciente paciente = colaPrioridad.get(i);
             int tiempoEnPrioridad = hora - paciente.getTiempoAdmisionEnPrioridad();
             if (tiempoEnPrioridad > maxTiempoEspera) {
                 actualizar.add(paciente);
@@ -107,22 +133,38 @@ public class UrgenciasAED implements Urgencias {
 
         // Actualiza la prioridad de los pacientes seleccionados
         for (Paciente paciente : actualizar) {
-            colaPrioridad.remove(paciente); // Elimina el paciente de la cola
             int nuevaPrioridad = Math.max(0, paciente.getPrioridad() - 1); // Incrementa la prioridad
             if (paciente.getPrioridad() != nuevaPrioridad) {
                 paciente.setPrioridad(nuevaPrioridad);
                 paciente.setTiempoAdmisionEnPrioridad(hora);
+                colaPrioridad.actualizar(paciente); // Recoloca al paciente con la nueva prioridad
             }
-            colaPrioridad.add(paciente); // Reintroduce al paciente con la nueva prioridad
         }
     }
 
+    /**
+     * Devuelve una foto de la cola: se copia el array del monticulo (O(n), sin
+     * ordenarlo) y cada iterador lo recorre en orden de atencion con una
+     * frontera, de modo que los k primeros cuestan O(k log k). Los cambios
+     * posteriores en las urgencias no afectan a la foto.
+     */
     @Override
     public Iterable<Paciente> pacientesEsperando() {
-        // Crea una lista con los pacientes de la cola de prioridad
-        List<Paciente> pacientesOrdenados = new ArrayList<>(colaPrioridad);
-        pacientesOrdenados.sort(null); // Ordena usando el método compareTo() de Paciente
-        return pacientesOrdenados;
+        return colaPrioridad.instantanea();
+    }
+
+    @Override
+    public Iterable<Paciente> pacientesEsperando(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit=" + limit);
+        }
+        // Solo se recorren los limit primeros con el iterador perezoso
+        List<Paciente> primeros = new ArrayList<>(Math.min(limit, colaPrioridad.size()));
+        Iterator<Paciente> it = colaPrioridad.iteradorOrdenado();
+        while (primeros.size() < limit && it.hasNext()) {
+            primeros.add(it.next());
+        }
+        return primeros;
     }
 
     @Override
@@ -137,4 +179,13 @@ public class UrgenciasAED implements Urgencias {
         return new Pair<>(sumaTiemposEspera, numeroPacientesAtendidos);
     }
 
+    /**
+     * Devuelve las estadisticas de espera (histogramas globales y por
+     * prioridad, con percentiles y totales de 64 bits) de los pacientes
+     * atendidos.
+     */
+    public EstadisticasEspera getEstadisticas() {
+        return estadisticas;
+    }
+
 }
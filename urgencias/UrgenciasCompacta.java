@@ -0,0 +1,368 @@
+package aed.urgencias;
+
+import es.upm.aedlib.Pair;
+import java.util.*;
+
+/**
+ * Implementación de la interfaz Urgencias pensada para colas muy grandes.
+ *
+ * En lugar de un objeto Paciente por paciente mas una entrada en un HashMap y
+ * otra en una PriorityQueue, cada paciente es un indice (un "handle") en
+ * varios arrays paralelos de tipos primitivos: prioridad, tiempos y posicion
+ * en el monticulo. El DNI se busca en una tabla hash de direccionamiento
+ * abierto que guarda handles, y el monticulo es un array de handles. Los
+ * handles de los pacientes que se van se reutilizan.
+ *
+ * Los objetos Paciente que devuelven los metodos se crean al devolverlos: son
+ * copias, y cambiarlos no cambia las urgencias.
+ */
+public class UrgenciasCompacta implements Urgencias {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    // Datos de cada paciente, indexados por handle
+    private String[] DNIs;
+    private int[] prioridades;
+    private int[] tiemposAdmision;
+    private int[] tiemposAdmisionEnPrioridad;
+    // Posicion del handle en el monticulo (-1 si el handle esta libre)
+    private int[] posiciones;
+
+    // Monticulo de handles: el primero es el siguiente paciente a atender
+    private int[] monticulo;
+    private int size;
+
+    // Handles libres (pila) y siguiente handle nunca usado
+    private int[] libres;
+    private int numLibres;
+    private int siguienteHandle;
+
+    // Tabla hash DNI -> handle con sondeo lineal; guarda handle+1 (0 es vacio)
+    private int[] tabla;
+
+    // Variables para el seguimiento de tiempos de espera y número de pacientes atendidos
+    private int sumaTiemposEspera;
+    private int numeroPacientesAtendidos;
+    // Histogramas de los tiempos de espera
+    private EstadisticasEspera estadisticas;
+
+    // Constructor: inicializa las estructuras y variables internas
+    public UrgenciasCompacta() {
+        this.DNIs = new String[CAPACIDAD_INICIAL];
+        this.prioridades = new int[CAPACIDAD_INICIAL];
+        this.tiemposAdmision = new int[CAPACIDAD_INICIAL];
+        this.tiemposAdmisionEnPrioridad = new int[CAPACIDAD_INICIAL];
+        this.posiciones = new int[CAPACIDAD_INICIAL];
+        this.monticulo = new int[CAPACIDAD_INICIAL];
+        this.size = 0;
+        this.libres = new int[CAPACIDAD_INICIAL];
+        this.numLibres = 0;
+        this.siguienteHandle = 0;
+        this.tabla = new int[2 * CAPACIDAD_INICIAL];
+        this.sumaTiemposEspera = 0;
+        this.numeroPacientesAtendidos = 0;
+        this.estadisticas = new EstadisticasEspera();
+    }
+
+    @Override
+    public Paciente admitirPaciente(String DNI, int prioridad, int hora) throws PacienteExisteException {
+        if (buscar(DNI) >= 0) {
+            throw new PacienteExisteException();
+        }
+
+        int handle = nuevoHandle();
+        DNIs[handle] = DNI;
+        prioridades[handle] = prioridad;
+        tiemposAdmision[handle] = hora;
+        tiemposAdmisionEnPrioridad[handle] = hora;
+        insertarEnTabla(handle);
+
+        monticulo[size] = handle;
+        posiciones[handle] = size;
+        size++;
+        subir(size - 1);
+        return paciente(handle);
+    }
+
+    @Override
+    public Paciente salirPaciente(String DNI, int hora) throws PacienteNoExisteException {
+        int handle = buscar(DNI);
+        if (handle < 0) {
+            throw new PacienteNoExisteException();
+        }
+        Paciente paciente = paciente(handle);
+        borrarDelMonticulo(posiciones[handle]);
+        liberar(handle);
+        return paciente;
+    }
+
+    @Override
+    public Paciente cambiarPrioridad(String DNI, int nuevaPrioridad, int hora) throws PacienteNoExisteException {
+        int handle = buscar(DNI);
+        if (handle < 0) {
+            throw new PacienteNoExisteException();
+        }
+        if (prioridades[handle] != nuevaPrioridad) {
+            prioridades[handle] = nuevaPrioridad;
+            tiemposAdmisionEnPrioridad[handle] = hora;
+            subir(posiciones[handle]);
+            bajar(posiciones[handle]);
+        }
+        return paciente(handle);
+    }
+
+    @Override
+    public Paciente atenderPaciente(int hora) {
+        if (size == 0) {
+            return null;
+        }
+        int handle = monticulo[0];
+        Paciente paciente = paciente(handle);
+        borrarDelMonticulo(0);
+        liberar(handle);
+
+        int tiempoEspera = hora - paciente.getTiempoAdmision();
+        sumaTiemposEspera += tiempoEspera;
+        numeroPacientesAtendidos++;
+        estadisticas.registrar(paciente.getPrioridad(), tiempoEspera);
+        return paciente;
+    }
+
+    @Override
+    public void aumentaPrioridad(int maxTiempoEspera, int hora) {
+        // Se cambian los campos recorriendo el array y, si ha cambiado alguno,
+        // se reconstruye el monticulo de abajo a arriba en O(n)
+        boolean cambios = false;
+        for (int i = 0; i < size; i++) {
+            int handle = monticulo[i];
+            if (hora - tiemposAdmisionEnPrioridad[handle] > maxTiempoEspera && prioridades[handle] > 0) {
+                prioridades[handle]--;
+                tiemposAdmisionEnPrioridad[handle] = hora;
+                cambios = true;
+            }
+        }
+        if (cambios) {
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                bajar(i);
+            }
+        }
+    }
+
+    @Override
+    public Iterable<Paciente> pacientesEsperando() {
+        // Ordenacion por monticulo de una copia de los handles, sin objetos intermedios
+        int[] handles = Arrays.copyOf(monticulo, size);
+        for (int fin = size - 1; fin > 0; fin--) {
+            int primero = handles[0];
+            handles[0] = handles[fin];
+            handles[fin] = primero;
+            bajarEn(handles, fin, 0);
+        }
+        // Quedan de mayor a menor
+        List<Paciente> pacientesOrdenados = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            pacientesOrdenados.add(paciente(handles[i]));
+        }
+        return pacientesOrdenados;
+    }
+
+    @Override
+    public Paciente getPaciente(String DNI) {
+        int handle = buscar(DNI);
+        return handle < 0 ? null : paciente(handle);
+    }
+
+    @Override
+    public Pair<Integer, Integer> informacionEspera() {
+        return new Pair<>(sumaTiemposEspera, numeroPacientesAtendidos);
+    }
+
+    /**
+     * Devuelve las estadisticas de espera (histogramas globales y por
+     * prioridad, con percentiles y totales de 64 bits) de los pacientes
+     * atendidos.
+     */
+    public EstadisticasEspera getEstadisticas() {
+        return estadisticas;
+    }
+
+    // Crea el Paciente que se devuelve a partir de los arrays
+    private Paciente paciente(int handle) {
+        return new Paciente(DNIs[handle], prioridades[handle], tiemposAdmision[handle],
+                tiemposAdmisionEnPrioridad[handle]);
+    }
+
+    // El mismo orden que Paciente.compareTo
+    private boolean menor(int a, int b) {
+        if (prioridades[a] != prioridades[b]) {
+            return prioridades[a] < prioridades[b];
+        }
+        if (tiemposAdmisionEnPrioridad[a] != tiemposAdmisionEnPrioridad[b]) {
+            return tiemposAdmisionEnPrioridad[a] < tiemposAdmisionEnPrioridad[b];
+        }
+        return tiemposAdmision[a] < tiemposAdmision[b];
+    }
+
+    /* Monticulo de handles
+     * ====================
+     */
+
+    private void subir(int i) {
+        int handle = monticulo[i];
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (!menor(handle, monticulo[padre])) {
+                break;
+            }
+            monticulo[i] = monticulo[padre];
+            posiciones[monticulo[i]] = i;
+            i = padre;
+        }
+        monticulo[i] = handle;
+        posiciones[handle] = i;
+    }
+
+    private void bajar(int i) {
+        int handle = monticulo[i];
+        while (2 * i + 1 < size) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < size && menor(monticulo[hijo + 1], monticulo[hijo])) {
+                hijo++;
+            }
+            if (!menor(monticulo[hijo], handle)) {
+                break;
+            }
+            monticulo[i] = monticulo[hijo];
+            posiciones[monticulo[i]] = i;
+            i = hijo;
+        }
+        monticulo[i] = handle;
+        posiciones[handle] = i;
+    }
+
+    // bajar sobre un array cualquiera de handles (para ordenar copias)
+    private void bajarEn(int[] handles, int n, int i) {
+        int handle = handles[i];
+        while (2 * i + 1 < n) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < n && menor(handles[hijo + 1], handles[hijo])) {
+                hijo++;
+            }
+            if (!menor(handles[hijo], handle)) {
+                break;
+            }
+            handles[i] = handles[hijo];
+            i = hijo;
+        }
+        handles[i] = handle;
+    }
+
+    private void borrarDelMonticulo(int i) {
+        size--;
+        if (i != size) {
+            int ultimo = monticulo[size];
+            monticulo[i] = ultimo;
+            posiciones[ultimo] = i;
+            subir(i);
+            bajar(posiciones[ultimo]);
+        }
+    }
+
+    /* Handles
+     * =======
+     */
+
+    private int nuevoHandle() {
+        if (numLibres > 0) {
+            return libres[--numLibres];
+        }
+        if (siguienteHandle == DNIs.length) {
+            crecer();
+        }
+        return siguienteHandle++;
+    }
+
+    private void liberar(int handle) {
+        borrarDeTabla(handle);
+        DNIs[handle] = null;
+        posiciones[handle] = -1;
+        libres[numLibres++] = handle;
+    }
+
+    private void crecer() {
+        int capacidad = 2 * DNIs.length;
+        DNIs = Arrays.copyOf(DNIs, capacidad);
+        prioridades = Arrays.copyOf(prioridades, capacidad);
+        tiemposAdmision = Arrays.copyOf(tiemposAdmision, capacidad);
+        tiemposAdmisionEnPrioridad = Arrays.copyOf(tiemposAdmisionEnPrioridad, capacidad);
+        posiciones = Arrays.copyOf(posiciones, capacidad);
+        monticulo = Arrays.copyOf(monticulo, capacidad);
+        libres = Arrays.copyOf(libres, capacidad);
+
+        // La tabla se mantiene como mucho medio llena
+        int[] antigua = tabla;
+        tabla = new int[2 * capacidad];
+        for (int entrada : antigua) {
+            if (entrada != 0) {
+                insertarEnTabla(entrada - 1);
+            }
+        }
+    }
+
+    /* Tabla hash DNI -> handle
+     * ========================
+     */
+
+    private int hueco(String DNI) {
+        int h = DNI.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (tabla.length - 1);
+    }
+
+    // Devuelve el handle del DNI, o -1
+    private int buscar(String DNI) {
+        int mascara = tabla.length - 1;
+        for (int i = hueco(DNI); tabla[i] != 0; i = (i + 1) & mascara) {
+            int handle = tabla[i] - 1;
+            if (DNIs[handle].equals(DNI)) {
+                return handle;
+            }
+        }
+        return -1;
+    }
+
+    private void insertarEnTabla(int handle) {
+        int mascara = tabla.length - 1;
+        int i = hueco(DNIs[handle]);
+        while (tabla[i] != 0) {
+            i = (i + 1) & mascara;
+        }
+        tabla[i] = handle + 1;
+    }
+
+    /**
+     * Borra con desplazamiento hacia atras: las entradas siguientes del mismo
+     * grupo se mueven al hueco si su posicion ideal lo permite, asi no hacen
+     * falta marcas de borrado.
+     */
+    private void borrarDeTabla(int handle) {
+        int mascara = tabla.length - 1;
+        int i = hueco(DNIs[handle]);
+        while (tabla[i] != handle + 1) {
+            i = (i + 1) & mascara;
+        }
+        tabla[i] = 0;
+
+        for (int j = (i + 1) & mascara; tabla[j] != 0; j = (j + 1) & mascara) {
+            int ideal = hueco(DNIs[tabla[j] - 1]);
+            // La entrada de j se puede mover a i si su posicion ideal no esta
+            // en el tramo circular (i, j]
+            boolean entreIyJ = i <= j ? (ideal > i && ideal <= j) : (ideal > i || ideal <= j);
+            if (!entreIyJ) {
+                tabla[i] = tabla[j];
+                tabla[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package aed.urgencias;
+
+import es.upm.aedlib.Pair;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementación de la interfaz Urgencias que se puede usar desde varios hilos
+ * a la vez (varios medicos atendiendo y la recepcion admitiendo).
+ *
+ * Los pacientes se indexan por DNI en un ConcurrentHashMap y la cola de
+ * prioridad es una skip list sin cerrojos (ConcurrentSkipListMap). La clave de
+ * la skip list es una copia inmutable de los campos de ordenacion, de modo
+ * que un paciente nunca cambia mientras esta en la cola: al cambiar su
+ * prioridad se saca, se cambia y se vuelve a meter con una clave nueva.
+ *
+ * Las operaciones sobre un mismo paciente se sincronizan sobre el paciente, y
+ * el punto que decide quien se queda con un paciente es borrarlo del mapa de
+ * DNIs: solo un hilo lo consigue, asi que cada paciente se atiende (o sale)
+ * como mucho una vez.
+ */
+public class UrgenciasConcurrente implements Urgencias {
+
+    // Copia inmutable de los campos por los que se ordena un paciente
+    private static final class Clave implements Comparable<Clave> {
+        private final int prioridad;
+        private final int tiempoAdmisionEnPrioridad;
+        private final int tiempoAdmision;
+        private final String DNI;
+
+        Clave(Paciente paciente) {
+            this.prioridad = paciente.getPrioridad();
+            this.tiempoAdmisionEnPrioridad = paciente.getTiempoAdmisionEnPrioridad();
+            this.tiempoAdmision = paciente.getTiempoAdmision();
+            this.DNI = paciente.getDNI();
+        }
+
+        // El mismo orden que Paciente.compareTo, desempatando por DNI para que
+        // dos pacientes distintos nunca tengan la misma clave
+        @Override
+        public int compareTo(Clave otra) {
+            if (prioridad != otra.prioridad) {
+                return Integer.compare(prioridad, otra.prioridad);
+            }
+            if (tiempoAdmisionEnPrioridad != otra.tiempoAdmisionEnPrioridad) {
+                return Integer.compare(tiempoAdmisionEnPrioridad, otra.tiempoAdmisionEnPrioridad);
+            }
+            if (tiempoAdmision != otra.tiempoAdmision) {
+                return Integer.compare(tiempoAdmision, otra.tiempoAdmision);
+            }
+            return DNI.compareTo(otra.DNI);
+        }
+    }
+
+    // Mapa concurrente para gestionar pacientes por su DNI
+    private ConcurrentHashMap<String, Paciente> pacientes;
+    // Cola de prioridad concurrente
+    private ConcurrentSkipListMap<Clave, Paciente> colaPrioridad;
+    // Suma de tiempos de espera y número de pacientes atendidos
+    private LongAdder sumaTiemposEspera;
+    private LongAdder numeroPacientesAtendidos;
+    // Histogramas de los tiempos de espera
+    private EstadisticasEspera estadisticas;
+
+    // Constructor: inicializa las estructuras y variables internas
+    public UrgenciasConcurrente() {
+        this.pacientes = new ConcurrentHashMap<>();
+        this.colaPrioridad = new ConcurrentSkipListMap<>();
+        this.sumaTiemposEspera = new LongAdder();
+        this.numeroPacientesAtendidos = new LongAdder();
+        this.estadisticas = new EstadisticasEspera();
+    }
+
+    @Override
+    public Paciente admitirPaciente(String DNI, int prioridad, int hora) throws PacienteExisteException {
+        Paciente nuevoPaciente = new Paciente(DNI, prioridad, hora, hora);
+        synchronized (nuevoPaciente) {
+            if (pacientes.putIfAbsent(DNI, nuevoPaciente) != null) {
+                throw new PacienteExisteException();
+            }
+            colaPrioridad.put(new Clave(nuevoPaciente), nuevoPaciente);
+        }
+        return nuevoPaciente;
+    }
+
+    @Override
+    public Paciente salirPaciente(String DNI, int hora) throws PacienteNoExisteException {
+        Paciente paciente = pacientes.get(DNI);
+        if (paciente == null) {
+            throw new PacienteNoExisteException();
+        }
+        synchronized (paciente) {
+            // Si otro hilo lo ha atendido o ha salido ya, no existe
+            if (!pacientes.remove(DNI, paciente)) {
+                throw new PacienteNoExisteException();
+            }
+            colaPrioridad.remove(new Clave(paciente));
+        }
+        return paciente;
+    }
+
+    @Override
+    public Paciente cambiarPrioridad(String DNI, int nuevaPrioridad, int hora) throws PacienteNoExisteException {
+        Paciente paciente = pacientes.get(DNI);
+        if (paciente == null) {
+            throw new PacienteNoExisteException();
+        }
+        synchronized (paciente) {
+            if (pacientes.get(DNI) != paciente) {
+                throw new PacienteNoExisteException();
+            }
+            if (paciente.getPrioridad() != nuevaPrioridad && !recolocar(paciente, nuevaPrioridad, hora)) {
+                // Un medico lo acaba de sacar de la cola para atenderlo
+                throw new PacienteNoExisteException();
+            }
+        }
+        return paciente;
+    }
+
+    @Override
+    public Paciente atenderPaciente(int hora) {
+        while (true) {
+            Map.Entry<Clave, Paciente> primero = colaPrioridad.pollFirstEntry();
+            if (primero == null) {
+                return null;
+            }
+            Paciente paciente = primero.getValue();
+            synchronized (paciente) {
+                // Solo un hilo puede borrarlo del mapa; si ha salido mientras
+                // tanto se prueba con el siguiente
+                if (pacientes.remove(paciente.getDNI(), paciente)) {
+                    int tiempoEspera = hora - paciente.getTiempoAdmision();
+                    sumaTiemposEspera.add(tiempoEspera);
+                    numeroPacientesAtendidos.increment();
+                    estadisticas.registrar(paciente.getPrioridad(), tiempoEspera);
+                    return paciente;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void aumentaPrioridad(int maxTiempoEspera, int hora) {
+        // El iterador de la skip list es debilmente consistente: no falla si
+        // otros hilos cambian la cola mientras se recorre
+        for (Paciente paciente : colaPrioridad.values()) {
+            synchronized (paciente) {
+                int tiempoEnPrioridad = hora - paciente.getTiempoAdmisionEnPrioridad();
+                if (tiempoEnPrioridad > maxTiempoEspera && paciente.getPrioridad() > 0
+                        && pacientes.get(paciente.getDNI()) == paciente) {
+                    recolocar(paciente, paciente.getPrioridad() - 1, hora);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Iterable<Paciente> pacientesEsperando() {
+        // La cola ya esta ordenada; se copia para devolver una foto estable
+        List<Paciente> pacientesOrdenados = new ArrayList<>();
+        for (Paciente paciente : colaPrioridad.values()) {
+            pacientesOrdenados.add(paciente);
+        }
+        return pacientesOrdenados;
+    }
+
+    @Override
+    public Paciente getPaciente(String DNI) {
+        return pacientes.get(DNI);
+    }
+
+    /**
+     * Con varios hilos atendiendo, la suma y el numero se leen por separado y
+     * pueden no corresponder exactamente al mismo instante. Los contadores son
+     * de 64 bits; si no caben en un int se saturan a Integer.MAX_VALUE (los
+     * totales exactos estan en getEstadisticas()).
+     */
+    @Override
+    public Pair<Integer, Integer> informacionEspera() {
+        return new Pair<>(saturar(sumaTiemposEspera.sum()), saturar(numeroPacientesAtendidos.sum()));
+    }
+
+    /**
+     * Devuelve las estadisticas de espera (histogramas globales y por
+     * prioridad, con percentiles y totales de 64 bits) de los pacientes
+     * atendidos.
+     */
+    public EstadisticasEspera getEstadisticas() {
+        return estadisticas;
+    }
+
+    private static int saturar(long valor) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, valor));
+    }
+
+    /**
+     * Saca al paciente de la cola, cambia su prioridad y lo vuelve a meter con
+     * la clave nueva. Hay que tener el cerrojo del paciente.
+     *
+     * @return false si el paciente ya no estaba en la cola (lo esta atendiendo
+     *         otro hilo)
+     */
+    private boolean recolocar(Paciente paciente, int nuevaPrioridad, int hora) {
+        if (colaPrioridad.remove(new Clave(paciente)) == null) {
+            return false;
+        }
+        paciente.setPrioridad(nuevaPrioridad);
+        paciente.setTiempoAdmisionEnPrioridad(hora);
+        colaPrioridad.put(new Clave(paciente), paciente);
+        return true;
+    }
+
+}
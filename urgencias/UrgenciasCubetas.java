@@ -0,0 +1,244 @@
+package aed.urgencias;
+
+import es.upm.aedlib.Pair;
+import java.util.*;
+
+/**
+ * Implementación de la interfaz Urgencias con una cola de cubetas: una lista
+ * FIFO por cada prioridad, ordenada por tiempo de admision en la prioridad (y
+ * por tiempo de admision en caso de empate).
+ *
+ * Las cubetas estan en un mapa ordenado por prioridad y solo existen las que
+ * tienen pacientes, asi que se admite cualquier prioridad (tambien negativa,
+ * como en las demas implementaciones) y la memoria depende del numero de
+ * pacientes, no de la mayor prioridad. Con c cubetas, encontrar el primer
+ * paciente cuesta O(log c), y borrar o cambiar la prioridad de un paciente
+ * O(log c) (mas el recorrido corto desde el final de la cubeta al
+ * insertarlo). Como las prioridades suelen ser pocas, c es pequeño.
+ *
+ * En aumentaPrioridad los pacientes que llevan mas tiempo en su prioridad
+ * estan al principio de cada cubeta, por lo que solo se miran los que suben
+ * de prioridad: el coste es proporcional al numero de promovidos mas el
+ * numero de cubetas por log c.
+ */
+public class UrgenciasCubetas implements Urgencias {
+
+    // Un paciente dentro de la lista doblemente enlazada de su cubeta
+    private static class Nodo {
+        private final Paciente paciente;
+        private Nodo anterior;
+        private Nodo siguiente;
+
+        Nodo(Paciente paciente) {
+            this.paciente = paciente;
+        }
+    }
+
+    // La lista de pacientes de una prioridad
+    private static class Cubeta {
+        private Nodo primero;
+        private Nodo ultimo;
+    }
+
+    // Mapa para gestionar pacientes por su DNI
+    private Map<String, Nodo> pacientes;
+    // Las cubetas no vacias, por prioridad
+    private TreeMap<Integer, Cubeta> cubetas;
+    // Variables para el seguimiento de tiempos de espera y número de pacientes atendidos
+    private int sumaTiemposEspera;
+    private int numeroPacientesAtendidos;
+    // Histogramas de los tiempos de espera
+    private EstadisticasEspera estadisticas;
+
+    // Constructor: inicializa las estructuras y variables internas
+    public UrgenciasCubetas() {
+        this.pacientes = new HashMap<>();
+        this.cubetas = new TreeMap<>();
+        this.sumaTiemposEspera = 0;
+        this.numeroPacientesAtendidos = 0;
+        this.estadisticas = new EstadisticasEspera();
+    }
+
+    @Override
+    public Paciente admitirPaciente(String DNI, int prioridad, int hora) throws PacienteExisteException {
+        if (pacientes.containsKey(DNI)) {
+            throw new PacienteExisteException();
+        }
+
+        Paciente nuevoPaciente = new Paciente(DNI, prioridad, hora, hora);
+        Nodo nodo = new Nodo(nuevoPaciente);
+        pacientes.put(DNI, nodo);
+        insertar(nodo);
+        return nuevoPaciente;
+    }
+
+    @Override
+    public Paciente salirPaciente(String DNI, int hora) throws PacienteNoExisteException {
+        Nodo nodo = pacientes.remove(DNI);
+        if (nodo == null) {
+            throw new PacienteNoExisteException();
+        }
+        quitar(nodo);
+        return nodo.paciente;
+    }
+
+    @Override
+    public Paciente cambiarPrioridad(String DNI, int nuevaPrioridad, int hora) throws PacienteNoExisteException {
+        Nodo nodo = pacientes.get(DNI);
+        if (nodo == null) {
+            throw new PacienteNoExisteException();
+        }
+
+        // Solo se mueve de cubeta si la prioridad cambia
+        Paciente paciente = nodo.paciente;
+        if (paciente.getPrioridad() != nuevaPrioridad) {
+            quitar(nodo);
+            paciente.setPrioridad(nuevaPrioridad);
+            paciente.setTiempoAdmisionEnPrioridad(hora);
+            insertar(nodo);
+        }
+        return paciente;
+    }
+
+    @Override
+    public Paciente atenderPaciente(int hora) {
+        // El primero de la primera cubeta (no hay cubetas vacias)
+        Map.Entry<Integer, Cubeta> primera = cubetas.firstEntry();
+        if (primera == null) {
+            return null;
+        }
+        Nodo nodo = primera.getValue().primero;
+        quitar(nodo);
+        Paciente paciente = nodo.paciente;
+        pacientes.remove(paciente.getDNI());
+
+        int tiempoEspera = hora - paciente.getTiempoAdmision();
+        sumaTiemposEspera += tiempoEspera;
+        numeroPacientesAtendidos++;
+        estadisticas.registrar(paciente.getPrioridad(), tiempoEspera);
+        return paciente;
+    }
+
+    @Override
+    public void aumentaPrioridad(int maxTiempoEspera, int hora) {
+        // Las prioridades 0 y negativas no pueden aumentar. Se recorren las
+        // cubetas en orden creciente, de modo que un paciente que acaba de pasar
+        // a la cubeta anterior no se vuelve a mirar. Se avanza por clave porque
+        // quitar e insertar borran y crean cubetas.
+        for (Integer prioridad = cubetas.higherKey(0); prioridad != null; prioridad = cubetas.higherKey(prioridad)) {
+            Cubeta cubeta = cubetas.get(prioridad);
+            while (cubeta.primero != null
+                    && hora - cubeta.primero.paciente.getTiempoAdmisionEnPrioridad() > maxTiempoEspera) {
+                Nodo nodo = cubeta.primero;
+                quitar(nodo);
+                nodo.paciente.setPrioridad(prioridad - 1);
+                nodo.paciente.setTiempoAdmisionEnPrioridad(hora);
+                insertar(nodo);
+            }
+        }
+    }
+
+    @Override
+    public Iterable<Paciente> pacientesEsperando() {
+        // Las cubetas ya estan en el orden de atencion
+        List<Paciente> pacientesOrdenados = new ArrayList<>(pacientes.size());
+        for (Cubeta cubeta : cubetas.values()) {
+            for (Nodo nodo = cubeta.primero; nodo != null; nodo = nodo.siguiente) {
+                pacientesOrdenados.add(nodo.paciente);
+            }
+        }
+        return pacientesOrdenados;
+    }
+
+    @Override
+    public Iterable<Paciente> pacientesEsperando(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit=" + limit);
+        }
+        // Se para en cuanto hay limit pacientes
+        List<Paciente> primeros = new ArrayList<>();
+        for (Cubeta cubeta : cubetas.values()) {
+            if (primeros.size() == limit) {
+                break;
+            }
+            for (Nodo nodo = cubeta.primero; nodo != null && primeros.size() < limit; nodo = nodo.siguiente) {
+                primeros.add(nodo.paciente);
+            }
+        }
+        return primeros;
+    }
+
+    @Override
+    public Paciente getPaciente(String DNI) {
+        Nodo nodo = pacientes.get(DNI);
+        return nodo == null ? null : nodo.paciente;
+    }
+
+    @Override
+    public Pair<Integer, Integer> informacionEspera() {
+        return new Pair<>(sumaTiemposEspera, numeroPacientesAtendidos);
+    }
+
+    /**
+     * Devuelve las estadisticas de espera (histogramas globales y por
+     * prioridad, con percentiles y totales de 64 bits) de los pacientes
+     * atendidos.
+     */
+    public EstadisticasEspera getEstadisticas() {
+        return estadisticas;
+    }
+
+    /**
+     * Inserta el nodo en la cubeta de su prioridad. Como la hora no disminuye,
+     * casi siempre va al final; solo se retrocede sobre pacientes que van
+     * despues en el orden de Paciente.compareTo.
+     */
+    private void insertar(Nodo nodo) {
+        int prioridad = nodo.paciente.getPrioridad();
+        Cubeta cubeta = cubetas.get(prioridad);
+        if (cubeta == null) {
+            cubeta = new Cubeta();
+            cubetas.put(prioridad, cubeta);
+        }
+
+        Nodo anterior = cubeta.ultimo;
+        while (anterior != null && anterior.paciente.compareTo(nodo.paciente) > 0) {
+            anterior = anterior.anterior;
+        }
+
+        nodo.anterior = anterior;
+        nodo.siguiente = anterior == null ? cubeta.primero : anterior.siguiente;
+        if (nodo.anterior == null) {
+            cubeta.primero = nodo;
+        } else {
+            nodo.anterior.siguiente = nodo;
+        }
+        if (nodo.siguiente == null) {
+            cubeta.ultimo = nodo;
+        } else {
+            nodo.siguiente.anterior = nodo;
+        }
+    }
+
+    // Saca el nodo de su cubeta, y la cubeta del mapa si se queda vacia
+    private void quitar(Nodo nodo) {
+        int prioridad = nodo.paciente.getPrioridad();
+        Cubeta cubeta = cubetas.get(prioridad);
+        if (nodo.anterior == null) {
+            cubeta.primero = nodo.siguiente;
+        } else {
+            nodo.anterior.siguiente = nodo.siguiente;
+        }
+        if (nodo.siguiente == null) {
+            cubeta.ultimo = nodo.anterior;
+        } else {
+            nodo.siguiente.anterior = nodo.anterior;
+        }
+        nodo.anterior = null;
+        nodo.siguiente = null;
+        if (cubeta.primero == null) {
+            cubetas.remove(prioridad);
+        }
+    }
+
+}